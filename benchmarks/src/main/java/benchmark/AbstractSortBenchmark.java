@@ -0,0 +1,118 @@
+package benchmark;
+
+import algorithm.SortAlgorithm;
+import data.DataGenerator;
+import data.DatasetFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * アルゴリズム × ArrayType × サイズの共通ベンチマーク
+ * 入力は固定シードの DataGenerator（または datasetFile）で Trial ごとに 1 回だけ用意し、
+ * 各呼び出しでは作業用配列へコピーしてからソートする。
+ * コピーのコストは copyBaseline で別に計測できる。
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class AbstractSortBenchmark {
+
+    /**
+     * 空のまま指定すると JMH が enum の全値を列挙する
+     */
+    @Param
+    public DataGenerator.ArrayType arrayType;
+
+    @Param({"42"})
+    public long seed;
+
+    @Param({"0"})
+    public int minValue;
+
+    @Param({"100"})
+    public int maxValue;
+
+    /**
+     * 分布ごとのパラメータ（DataGenerator の setter に渡す。関係しない ArrayType では無視される）
+     */
+    @Param({"8"})
+    public int distinctValues;
+
+    @Param({"1.0"})
+    public double zipfExponent;
+
+    @Param({"4"})
+    public int sawtoothTeeth;
+
+    @Param({"16"})
+    public int runLength;
+
+    /**
+     * 指定すると生成せずにデータセットファイルを読み込む
+     * ファイルのヘッダーが arrayType とサイズに一致しない組み合わせは失敗させる
+     */
+    @Param({""})
+    public String datasetFile;
+
+    private SortAlgorithm sortAlgorithm;
+    private int[] source;
+    private int[] work;
+
+    @Setup
+    public void setUp() throws IOException {
+        sortAlgorithm = BenchmarkAlgorithms.create(algorithmName());
+        source = datasetFile.isEmpty() ? generate() : loadDataset();
+        work = new int[source.length];
+    }
+
+    private int[] generate() {
+        DataGenerator generator = new DataGenerator(seed);
+        generator.setDistinctValues(distinctValues);
+        generator.setZipfExponent(zipfExponent);
+        generator.setSawtoothTeeth(sawtoothTeeth);
+        generator.setRunLength(runLength);
+        return generator.generateArray(arrayType, arraySize(), minValue, maxValue);
+    }
+
+    private int[] loadDataset() throws IOException {
+        DatasetFile dataset = DatasetFile.open(Paths.get(datasetFile));
+        if (dataset.getArrayType() != arrayType || dataset.getSize() != arraySize()) {
+            throw new IllegalStateException("Dataset " + dataset + " does not match arrayType="
+                + arrayType + ", size=" + arraySize());
+        }
+        return dataset.toArray();
+    }
+
+    @Benchmark
+    public int[] sort() {
+        System.arraycopy(source, 0, work, 0, source.length);
+        sortAlgorithm.sort(work);
+        return work;
+    }
+
+    @Benchmark
+    public int[] copyBaseline() {
+        System.arraycopy(source, 0, work, 0, source.length);
+        return work;
+    }
+
+    protected abstract String algorithmName();
+
+    protected abstract int arraySize();
+}
@@ -0,0 +1,39 @@
+package benchmark;
+
+import algorithm.BubbleSort;
+import algorithm.ParallelMergeSort;
+import algorithm.QuickSort;
+import algorithm.RadixSort;
+import algorithm.ShakerSort;
+import algorithm.SortAlgorithm;
+import algorithm.TimSort;
+
+/**
+ * ベンチマークの @Param 名から SortAlgorithm を生成する
+ */
+final class BenchmarkAlgorithms {
+
+    private BenchmarkAlgorithms() {
+    }
+
+    static SortAlgorithm create(String name) {
+        switch (name) {
+            case "BubbleSort":
+                return new BubbleSort();
+            case "ShakerSort":
+                return new ShakerSort();
+            case "QuickSort":
+                return new QuickSort();
+            case "QuickSort3Way":
+                return new QuickSort(QuickSort.PivotStrategy.MEDIAN_OF_THREE, QuickSort.PartitionScheme.THREE_WAY);
+            case "ParallelMergeSort":
+                return new ParallelMergeSort();
+            case "RadixSort":
+                return new RadixSort();
+            case "TimSort":
+                return new TimSort();
+            default:
+                throw new IllegalArgumentException("Unknown algorithm: " + name);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * O(n^2) のアルゴリズムを計測する
+ * 10^7 要素では 1 回の呼び出しが終わらないため、サイズの上限を 10^5 に抑えている。
+ */
+public class QuadraticSortBenchmark extends AbstractSortBenchmark {
+
+    @Param({"BubbleSort", "ShakerSort"})
+    public String algorithm;
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int size;
+
+    @Override
+    protected String algorithmName() {
+        return algorithm;
+    }
+
+    @Override
+    protected int arraySize() {
+        return size;
+    }
+}
@@ -0,0 +1,25 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * O(n log n) 以下のアルゴリズムを 10 〜 10^7 要素で計測する
+ */
+public class SortBenchmark extends AbstractSortBenchmark {
+
+    @Param({"QuickSort", "QuickSort3Way", "ParallelMergeSort", "RadixSort", "TimSort"})
+    public String algorithm;
+
+    @Param({"10", "100", "1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Override
+    protected String algorithmName() {
+        return algorithm;
+    }
+
+    @Override
+    protected int arraySize() {
+        return size;
+    }
+}
@@ -1,10 +1,8 @@
 package algorithm;
 
-import java.util.function.BiConsumer;
-
 public abstract class AbstractSortAlgorithm implements SortAlgorithm {
     private int[] data;
-    protected BiConsumer<Integer, Integer> visualizer;
+    private SortEventSink eventSink;
 
     public void setData(int[] data) {
         if (data == null) {
@@ -23,20 +21,78 @@ public abstract class AbstractSortAlgorithm implements SortAlgorithm {
         }
         sort(data);
     }
-    
+
+    /**
+     * イベントの通知先を登録
+     * @param eventSink 通知先（null で解除。解除中の通知は null チェックのみで終わる）
+     */
+    public void setEventSink(SortEventSink eventSink) {
+        this.eventSink = eventSink;
+    }
+
+    public SortEventSink getEventSink() {
+        return eventSink;
+    }
+
+    /**
+     * 比較を通知（アルゴリズムから呼び出す）
+     */
+    protected final void notifyCompare(int i, int j) {
+        SortEventSink sink = eventSink;
+        if (sink != null) {
+            sink.onCompare(i, j);
+        }
+    }
+
+    /**
+     * 交換を通知（アルゴリズムから交換の直前に呼び出す）
+     */
+    protected final void notifySwap(int i, int j) {
+        SortEventSink sink = eventSink;
+        if (sink != null) {
+            sink.onSwap(i, j);
+        }
+    }
+
+    /**
+     * ピボットの選択を通知（-1 で解除）
+     */
+    protected final void notifyPivot(int index) {
+        SortEventSink sink = eventSink;
+        if (sink != null) {
+            sink.onPivot(index);
+        }
+    }
+
+    /**
+     * 読み出しを通知
+     */
+    protected final void notifyRead(int index) {
+        SortEventSink sink = eventSink;
+        if (sink != null) {
+            sink.onRead(index);
+        }
+    }
+
     /**
-     * ビジュアライザーにコールバックを登録
-     * @param visualizer 配列インデックスのペア (i, j) を受け取るコンシューマ
+     * 書き込みを通知
      */
-    public void setVisualizerCallback(BiConsumer<Integer, Integer> visualizer) {
-        this.visualizer = visualizer;
+    protected final void notifyWrite(int index, int value) {
+        SortEventSink sink = eventSink;
+        if (sink != null) {
+            sink.onWrite(index, value);
+        }
     }
-    
+
     /**
-     * ビジュアライザーに通知（アルゴリズムから呼び出す）
+     * array[from, to) へのまとめた書き込み（System.arraycopy など）を 1 要素ずつ通知
      */
-    protected void notifyVisualizer(int i, int j) {
-        if (visualizer != null) {
-            visualizer.accept(i, j);
-        }    }
-}
\ No newline at end of file
+    protected final void notifyWriteRange(int[] array, int from, int to) {
+        SortEventSink sink = eventSink;
+        if (sink != null) {
+            for (int i = from; i < to; i++) {
+                sink.onWrite(i, array[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package algorithm;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * 多数の小さな配列をまとめて整列するバッチソーター
+ * 配列の集合を ForkJoinPool のタスクに分割し、ワークスティーリングで各スレッドに分配する。
+ * SortAlgorithm のインスタンスは作業領域を持つためスレッドごとに生成し、共有しない。
+ * 要素数が小さい配列はアルゴリズムを呼ばずに挿入ソートで処理する。
+ */
+public class BatchSorter {
+    public static final int DEFAULT_INSERTION_SORT_THRESHOLD = 32;
+    private static final int ARRAYS_PER_TASK = 256;
+
+    private final Supplier<? extends SortAlgorithm> algorithmFactory;
+    private final ForkJoinPool pool;
+    private final int insertionSortThreshold;
+
+    public BatchSorter(Supplier<? extends SortAlgorithm> algorithmFactory) {
+        this(algorithmFactory, ForkJoinPool.commonPool(), DEFAULT_INSERTION_SORT_THRESHOLD);
+    }
+
+    /**
+     * @param algorithmFactory ワーカースレッドごとのアルゴリズムを生成する
+     * @param pool 配列を分配するプール
+     * @param insertionSortThreshold この要素数以下の配列は挿入ソートで処理する（0 で無効）
+     */
+    public BatchSorter(Supplier<? extends SortAlgorithm> algorithmFactory, ForkJoinPool pool,
+                       int insertionSortThreshold) {
+        if (algorithmFactory == null) {
+            throw new IllegalArgumentException("algorithmFactory must not be null");
+        }
+        if (pool == null) {
+            throw new IllegalArgumentException("pool must not be null");
+        }
+        this.algorithmFactory = algorithmFactory;
+        this.pool = pool;
+        this.insertionSortThreshold = Math.max(0, insertionSortThreshold);
+    }
+
+    /**
+     * すべての配列をその場で整列する（null の要素は無視する）
+     */
+    public Result sort(int[][] arrays) {
+        if (arrays == null) {
+            throw new IllegalArgumentException("arrays must not be null");
+        }
+        Batch batch = new Batch();
+        long startNanos = System.nanoTime();
+        pool.invoke(new RangeTask(batch, arrays, 0, arrays.length));
+        return batch.finish(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * ストリームから流れてくる配列をその場で整列する
+     * 配列を集め直さず、並列ストリームとしてプール上で消費する。
+     */
+    public Result sort(Stream<int[]> arrays) {
+        if (arrays == null) {
+            throw new IllegalArgumentException("arrays must not be null");
+        }
+        Batch batch = new Batch();
+        long startNanos = System.nanoTime();
+        pool.submit(() -> arrays.parallel().forEach(array -> batch.worker().sort(array))).join();
+        return batch.finish(System.nanoTime() - startNanos);
+    }
+
+    private static void insertionSort(int[] array) {
+        for (int i = 1; i < array.length; i++) {
+            int value = array[i];
+            int j = i - 1;
+            while (j >= 0 && array[j] > value) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = value;
+        }
+    }
+
+    /**
+     * 1 回の sort 呼び出しの状態。ワーカーはスレッドごとに 1 つ作られ、終了時に統計をまとめる
+     * ワーカーはこのバッチの表にだけ置くので、バッチが終われば（プールのスレッドが生き続けても）一緒に回収される。
+     */
+    private final class Batch {
+        private final Map<Thread, Worker> workers = new ConcurrentHashMap<>();
+
+        Worker worker() {
+            return workers.computeIfAbsent(Thread.currentThread(), thread -> new Worker(algorithmFactory.get()));
+        }
+
+        Result finish(long elapsedNanos) {
+            LatencyHistogram latencies = new LatencyHistogram();
+            long elements = 0;
+            for (Worker worker : workers.values()) {
+                latencies.add(worker.latencies);
+                elements += worker.elements;
+            }
+            return new Result(latencies, elements, elapsedNanos, workers.size());
+        }
+    }
+
+    private final class Worker {
+        private final SortAlgorithm algorithm;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private long elements;
+
+        private Worker(SortAlgorithm algorithm) {
+            this.algorithm = algorithm;
+        }
+
+        void sort(int[] array) {
+            if (array == null) {
+                return;
+            }
+            long start = System.nanoTime();
+            if (array.length <= insertionSortThreshold) {
+                insertionSort(array);
+            } else {
+                algorithm.sort(array);
+            }
+            latencies.record(System.nanoTime() - start);
+            elements += array.length;
+        }
+    }
+
+    private final class RangeTask extends RecursiveAction {
+        private final Batch batch;
+        private final int[][] arrays;
+        private final int from;
+        private final int to;
+
+        private RangeTask(Batch batch, int[][] arrays, int from, int to) {
+            this.batch = batch;
+            this.arrays = arrays;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ARRAYS_PER_TASK) {
+                Worker worker = batch.worker();
+                for (int i = from; i < to; i++) {
+                    worker.sort(arrays[i]);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(batch, arrays, from, mid), new RangeTask(batch, arrays, mid, to));
+        }
+    }
+
+    /**
+     * バッチ全体の集計結果
+     */
+    public static class Result {
+        private final LatencyHistogram latencies;
+        private final long elementCount;
+        private final long elapsedNanos;
+        private final int workerCount;
+
+        private Result(LatencyHistogram latencies, long elementCount, long elapsedNanos, int workerCount) {
+            this.latencies = latencies;
+            this.elementCount = elementCount;
+            this.elapsedNanos = elapsedNanos;
+            this.workerCount = workerCount;
+        }
+
+        public long getArrayCount() {
+            return latencies.getTotalCount();
+        }
+
+        public long getElementCount() {
+            return elementCount;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public int getWorkerCount() {
+            return workerCount;
+        }
+
+        public double getArraysPerSecond() {
+            return elapsedNanos == 0 ? 0 : getArrayCount() * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * 1 配列あたりの所要時間のパーセンタイル（ナノ秒、相対誤差およそ 6%）
+         */
+        public long getLatencyPercentileNanos(double percentile) {
+            return latencies.getValueAtPercentile(percentile);
+        }
+
+        public long getMaxLatencyNanos() {
+            return latencies.getMaxValue();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d arrays (%,d values) in %.3f s on %d worker(s): %,.0f arrays/s, "
+                    + "p50 %,d ns, p99 %,d ns, max %,d ns",
+                getArrayCount(), elementCount, elapsedNanos / 1e9, workerCount, getArraysPerSecond(),
+                getLatencyPercentileNanos(50), getLatencyPercentileNanos(99), getMaxLatencyNanos());
+        }
+    }
+}
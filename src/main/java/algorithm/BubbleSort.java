@@ -7,8 +7,9 @@ public class BubbleSort extends AbstractSortAlgorithm {
         int n = array.length;
         for (int i = 0; i < n - 1; i++) {
             for (int j = 0; j < n - i - 1; j++) {
-                notifyVisualizer(j, j + 1);
+                notifyCompare(j, j + 1);
                 if (array[j] > array[j + 1]) {
+                    notifySwap(j, j + 1);
                     int temp = array[j];
                     array[j] = array[j + 1];
                     array[j + 1] = temp;
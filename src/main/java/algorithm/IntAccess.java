@@ -0,0 +1,82 @@
+package algorithm;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * 整列対象への添字アクセス
+ * int[] と IntBuffer（ダイレクトバッファ・マップしたファイルを含む）を 1 つの実装で整列するために使う。
+ * 添字は呼び出し側の座標のまま（IntBuffer なら絶対位置）で、ヒープ上のバッファは元の配列へ直接アクセスする。
+ */
+interface IntAccess {
+
+    int get(int index);
+
+    void set(int index, int value);
+
+    /**
+     * [from, to) を value で埋める
+     */
+    default void fill(int from, int to, int value) {
+        for (int i = from; i < to; i++) {
+            set(i, value);
+        }
+    }
+
+    static IntAccess of(int[] array) {
+        return new ArrayAccess(array, 0);
+    }
+
+    /**
+     * 配列を持つバッファは配列へ、それ以外は絶対位置の get/put でアクセスする
+     */
+    static IntAccess of(IntBuffer buffer) {
+        if (buffer.hasArray()) {
+            return new ArrayAccess(buffer.array(), buffer.arrayOffset());
+        }
+        return new BufferAccess(buffer);
+    }
+
+    final class ArrayAccess implements IntAccess {
+        private final int[] array;
+        private final int offset;
+
+        private ArrayAccess(int[] array, int offset) {
+            this.array = array;
+            this.offset = offset;
+        }
+
+        @Override
+        public int get(int index) {
+            return array[offset + index];
+        }
+
+        @Override
+        public void set(int index, int value) {
+            array[offset + index] = value;
+        }
+
+        @Override
+        public void fill(int from, int to, int value) {
+            Arrays.fill(array, offset + from, offset + to, value);
+        }
+    }
+
+    final class BufferAccess implements IntAccess {
+        private final IntBuffer buffer;
+
+        private BufferAccess(IntBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int get(int index) {
+            return buffer.get(index);
+        }
+
+        @Override
+        public void set(int index, int value) {
+            buffer.put(index, value);
+        }
+    }
+}
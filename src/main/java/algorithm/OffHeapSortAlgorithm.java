@@ -0,0 +1,15 @@
+package algorithm;
+
+import java.nio.IntBuffer;
+
+/**
+ * ヒープ外のデータ（ダイレクトバッファ・メモリマップしたファイル）をコピーせずに整列できるアルゴリズム
+ */
+public interface OffHeapSortAlgorithm extends SortAlgorithm {
+
+    /**
+     * buffer の [position, limit) をその場で昇順に整列する
+     * position と limit は変更しない。
+     */
+    void sort(IntBuffer buffer);
+}
@@ -0,0 +1,212 @@
+package algorithm;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ForkJoinPool 上で動作する並列マージソート
+ * 分割・マージの両方を並列化し、作業用バッファは呼び出し間で再利用する。
+ * 複数スレッドで比較が行われるため、ビジュアライザーへの通知は行わない。
+ */
+public class ParallelMergeSort extends AbstractSortAlgorithm {
+    public static final int DEFAULT_SEQUENTIAL_CUTOFF = 1 << 13;
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    private final ForkJoinPool pool;
+    private final int sequentialCutoff;
+    private int[] buffer = new int[0];
+
+    public ParallelMergeSort() {
+        this(ForkJoinPool.commonPool(), DEFAULT_SEQUENTIAL_CUTOFF);
+    }
+
+    /**
+     * @param pool タスクを実行するプール
+     * @param sequentialCutoff この要素数以下の区間は逐次処理する
+     */
+    public ParallelMergeSort(ForkJoinPool pool, int sequentialCutoff) {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool must not be null");
+        }
+        if (sequentialCutoff < 2) {
+            throw new IllegalArgumentException("sequentialCutoff must be >= 2");
+        }
+        this.pool = pool;
+        this.sequentialCutoff = sequentialCutoff;
+    }
+
+    @Override
+    public void sort(int[] array) {
+        if (array == null || array.length < 2) {
+            return;
+        }
+        int n = array.length;
+        if (buffer.length < n) {
+            buffer = new int[n];
+        }
+        if (n <= sequentialCutoff) {
+            sortRange(array, buffer, 0, n, false);
+        } else {
+            pool.invoke(new SortTask(array, buffer, 0, n, false));
+        }
+    }
+
+    @Override
+    public long getScratchBytes(int length) {
+        return (long) length * Integer.BYTES;
+    }
+
+    @Override
+    public String getName() {
+        return "Parallel Merge Sort";
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public int getSequentialCutoff() {
+        return sequentialCutoff;
+    }
+
+    /**
+     * array[low, high) を整列する
+     * intoBuffer が true の場合、結果を buffer の同じ区間に書き込む
+     */
+    private static void sortRange(int[] array, int[] buffer, int low, int high, boolean intoBuffer) {
+        if (high - low <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(array, low, high);
+            if (intoBuffer) {
+                System.arraycopy(array, low, buffer, low, high - low);
+            }
+            return;
+        }
+        int mid = (low + high) >>> 1;
+        // 子は逆側の配列に結果を書き、親がそれをマージして目的の配列へ戻す
+        sortRange(array, buffer, low, mid, !intoBuffer);
+        sortRange(array, buffer, mid, high, !intoBuffer);
+        int[] src = intoBuffer ? array : buffer;
+        int[] dst = intoBuffer ? buffer : array;
+        merge(src, low, mid, mid, high, dst, low);
+    }
+
+    private static void insertionSort(int[] array, int low, int high) {
+        for (int i = low + 1; i < high; i++) {
+            int value = array[i];
+            int j = i - 1;
+            while (j >= low && array[j] > value) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = value;
+        }
+    }
+
+    private static void merge(int[] src, int aLow, int aHigh, int bLow, int bHigh, int[] dst, int dstLow) {
+        int i = aLow;
+        int j = bLow;
+        int k = dstLow;
+        while (i < aHigh && j < bHigh) {
+            dst[k++] = src[j] < src[i] ? src[j++] : src[i++];
+        }
+        if (i < aHigh) {
+            System.arraycopy(src, i, dst, k, aHigh - i);
+        } else if (j < bHigh) {
+            System.arraycopy(src, j, dst, k, bHigh - j);
+        }
+    }
+
+    /**
+     * src[low, high) の中で key 以上となる最初の位置
+     */
+    private static int lowerBound(int[] src, int low, int high, int key) {
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (src[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private final class SortTask extends RecursiveAction {
+        private final int[] array;
+        private final int[] buffer;
+        private final int low;
+        private final int high;
+        private final boolean intoBuffer;
+
+        private SortTask(int[] array, int[] buffer, int low, int high, boolean intoBuffer) {
+            this.array = array;
+            this.buffer = buffer;
+            this.low = low;
+            this.high = high;
+            this.intoBuffer = intoBuffer;
+        }
+
+        @Override
+        protected void compute() {
+            if (high - low <= sequentialCutoff) {
+                sortRange(array, buffer, low, high, intoBuffer);
+                return;
+            }
+            int mid = (low + high) >>> 1;
+            invokeAll(new SortTask(array, buffer, low, mid, !intoBuffer),
+                new SortTask(array, buffer, mid, high, !intoBuffer));
+            int[] src = intoBuffer ? array : buffer;
+            int[] dst = intoBuffer ? buffer : array;
+            new MergeTask(src, low, mid, mid, high, dst, low).compute();
+        }
+    }
+
+    /**
+     * 長い方の区間の中央値で二分し、もう一方を二分探索で分割して並列にマージする
+     */
+    private final class MergeTask extends RecursiveAction {
+        private final int[] src;
+        private final int aLow;
+        private final int aHigh;
+        private final int bLow;
+        private final int bHigh;
+        private final int[] dst;
+        private final int dstLow;
+
+        private MergeTask(int[] src, int aLow, int aHigh, int bLow, int bHigh, int[] dst, int dstLow) {
+            this.src = src;
+            this.aLow = aLow;
+            this.aHigh = aHigh;
+            this.bLow = bLow;
+            this.bHigh = bHigh;
+            this.dst = dst;
+            this.dstLow = dstLow;
+        }
+
+        @Override
+        protected void compute() {
+            int aLength = aHigh - aLow;
+            int bLength = bHigh - bLow;
+            if (aLength + bLength <= sequentialCutoff) {
+                merge(src, aLow, aHigh, bLow, bHigh, dst, dstLow);
+                return;
+            }
+            MergeTask left;
+            MergeTask right;
+            if (aLength >= bLength) {
+                int aMid = (aLow + aHigh) >>> 1;
+                int bMid = lowerBound(src, bLow, bHigh, src[aMid]);
+                int dstMid = dstLow + (aMid - aLow) + (bMid - bLow);
+                left = new MergeTask(src, aLow, aMid, bLow, bMid, dst, dstLow);
+                right = new MergeTask(src, aMid, aHigh, bMid, bHigh, dst, dstMid);
+            } else {
+                int bMid = (bLow + bHigh) >>> 1;
+                int aMid = lowerBound(src, aLow, aHigh, src[bMid]);
+                int dstMid = dstLow + (aMid - aLow) + (bMid - bLow);
+                left = new MergeTask(src, aLow, aMid, bLow, bMid, dst, dstLow);
+                right = new MergeTask(src, aMid, aHigh, bMid, bHigh, dst, dstMid);
+            }
+            invokeAll(left, right);
+        }
+    }
+}
@@ -1,45 +1,317 @@
 package algorithm;
 
-public class QuickSort extends AbstractSortAlgorithm {
+import java.nio.IntBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * イントロソート方式のクイックソート
+ * ピボット選択と分割方式を切り替えられ、小さい区間は挿入ソート、
+ * 再帰の深さが 2·log n を超えた区間はヒープソートで処理する。
+ * 小さい側だけを再帰し大きい側はループで処理するため、スタックは O(log n) に収まる。
+ */
+public class QuickSort extends AbstractSortAlgorithm implements OffHeapSortAlgorithm {
+    public static final int DEFAULT_INSERTION_SORT_THRESHOLD = 16;
+    private static final int NINTHER_THRESHOLD = 128;
+
+    /**
+     * ピボットの選び方
+     */
+    public enum PivotStrategy {
+        LAST,
+        MEDIAN_OF_THREE,
+        NINTHER,
+        RANDOM
+    }
+
+    /**
+     * 分割の方式
+     * THREE_WAY はピボットと等しい要素を 1 回の走査でまとめ、以降の再帰から除外する（Bentley-McIlroy）
+     */
+    public enum PartitionScheme {
+        LOMUTO,
+        THREE_WAY
+    }
+
+    private final PivotStrategy pivotStrategy;
+    private final PartitionScheme partitionScheme;
+    private final int insertionSortThreshold;
+
+    public QuickSort() {
+        this(PivotStrategy.MEDIAN_OF_THREE);
+    }
+
+    public QuickSort(PivotStrategy pivotStrategy) {
+        this(pivotStrategy, PartitionScheme.LOMUTO);
+    }
+
+    public QuickSort(PivotStrategy pivotStrategy, PartitionScheme partitionScheme) {
+        this(pivotStrategy, partitionScheme, DEFAULT_INSERTION_SORT_THRESHOLD);
+    }
+
+    /**
+     * @param pivotStrategy ピボットの選び方
+     * @param partitionScheme 分割の方式
+     * @param insertionSortThreshold この要素数以下の区間は挿入ソートで処理する（1 以下で無効）
+     */
+    public QuickSort(PivotStrategy pivotStrategy, PartitionScheme partitionScheme, int insertionSortThreshold) {
+        if (pivotStrategy == null) {
+            throw new IllegalArgumentException("pivotStrategy must not be null");
+        }
+        if (partitionScheme == null) {
+            throw new IllegalArgumentException("partitionScheme must not be null");
+        }
+        this.pivotStrategy = pivotStrategy;
+        this.partitionScheme = partitionScheme;
+        this.insertionSortThreshold = Math.max(1, insertionSortThreshold);
+    }
+
     @Override
     public void sort(int[] array) {
         if (array == null || array.length < 2) {
             return;
         }
-        quickSort(array, 0, array.length - 1);
+        int depthLimit = 2 * (31 - Integer.numberOfLeadingZeros(array.length));
+        quickSort(IntAccess.of(array), 0, array.length - 1, depthLimit);
     }
 
     @Override
     public String getName() {
-        return "Quick Sort";
+        return partitionScheme == PartitionScheme.THREE_WAY ? "Quick Sort (3-way)" : "Quick Sort";
+    }
+
+    public PivotStrategy getPivotStrategy() {
+        return pivotStrategy;
+    }
+
+    public PartitionScheme getPartitionScheme() {
+        return partitionScheme;
     }
 
-    private void quickSort(int[] array, int low, int high) {
-        if (low < high) {
-            int pivotIndex = partition(array, low, high);
-            quickSort(array, low, pivotIndex - 1);
-            quickSort(array, pivotIndex + 1, high);
+    private void quickSort(IntAccess array, int low, int high, int depthLimit) {
+        while (high - low + 1 > insertionSortThreshold) {
+            if (depthLimit == 0) {
+                heapSort(array, low, high);
+                return;
+            }
+            depthLimit--;
+            long bounds = partitionScheme == PartitionScheme.THREE_WAY
+                ? partitionThreeWay(array, low, high)
+                : partition(array, low, high);
+            int lessEnd = (int) (bounds >> 32);
+            int greaterStart = (int) bounds;
+            // 小さい側を再帰、大きい側はループで処理
+            if (lessEnd - low < high - greaterStart) {
+                quickSort(array, low, lessEnd, depthLimit);
+                low = greaterStart;
+            } else {
+                quickSort(array, greaterStart, high, depthLimit);
+                high = lessEnd;
+            }
         }
+        insertionSort(array, low, high);
     }
 
-    private int partition(int[] array, int low, int high) {
-        int pivot = array[high];
+    /**
+     * 分割結果を (小さい側の末尾, 大きい側の先頭) として 1 つの long に詰める
+     */
+    private static long bounds(int lessEnd, int greaterStart) {
+        return ((long) lessEnd << 32) | (greaterStart & 0xFFFFFFFFL);
+    }
+
+    private long partition(IntAccess array, int low, int high) {
+        int pivotIndex = selectPivot(array, low, high);
+        if (pivotIndex != high) {
+            swap(array, pivotIndex, high);
+        }
+        notifyPivot(high);
+        int pivot = array.get(high);
         int i = low - 1;
         for (int j = low; j < high; j++) {
-            notifyVisualizer(j, high);
-            if (array[j] <= pivot) {
+            notifyCompare(j, high);
+            if (array.get(j) <= pivot) {
                 i++;
                 swap(array, i, j);
             }
         }
         swap(array, i + 1, high);
-        return i + 1;
+        notifyPivot(-1);
+        return bounds(i, i + 2);
+    }
+
+    /**
+     * Bentley-McIlroy の 3 分割
+     * 走査中はピボットと等しい要素を両端に寄せ、最後に中央へ戻す。
+     */
+    private long partitionThreeWay(IntAccess array, int low, int high) {
+        int pivotIndex = selectPivot(array, low, high);
+        if (pivotIndex != low) {
+            swap(array, pivotIndex, low);
+        }
+        notifyPivot(low);
+        int pivot = array.get(low);
+        int i = low;
+        int j = high + 1;
+        int p = low;
+        int q = high + 1;
+        while (true) {
+            while (true) {
+                i++;
+                notifyCompare(i, low);
+                if (array.get(i) >= pivot || i == high) {
+                    break;
+                }
+            }
+            while (true) {
+                j--;
+                notifyCompare(j, low);
+                if (pivot >= array.get(j) || j == low) {
+                    break;
+                }
+            }
+            if (i == j && array.get(i) == pivot) {
+                swap(array, ++p, i);
+            }
+            if (i >= j) {
+                break;
+            }
+            swap(array, i, j);
+            if (array.get(i) == pivot) {
+                swap(array, ++p, i);
+            }
+            if (array.get(j) == pivot) {
+                swap(array, --q, j);
+            }
+        }
+
+        notifyPivot(-1);
+
+        // 両端に集めた等しい要素を中央へ移動
+        i = j + 1;
+        for (int k = low; k <= p; k++) {
+            swap(array, k, j--);
+        }
+        for (int k = high; k >= q; k--) {
+            swap(array, k, i++);
+        }
+        return bounds(j, i);
+    }
+
+    private int selectPivot(IntAccess array, int low, int high) {
+        switch (pivotStrategy) {
+            case MEDIAN_OF_THREE:
+                return medianOfThree(array, low, (low + high) >>> 1, high);
+            case NINTHER:
+                return ninther(array, low, high);
+            case RANDOM:
+                return ThreadLocalRandom.current().nextInt(low, high + 1);
+            case LAST:
+            default:
+                return high;
+        }
+    }
+
+    /**
+     * 3 つの中央値を 3 回取り、その中央値をピボットにする（Tukey の ninther）
+     */
+    private int ninther(IntAccess array, int low, int high) {
+        int size = high - low + 1;
+        int mid = (low + high) >>> 1;
+        if (size < NINTHER_THRESHOLD) {
+            return medianOfThree(array, low, mid, high);
+        }
+        int eighth = size / 8;
+        int a = medianOfThree(array, low, low + eighth, low + 2 * eighth);
+        int b = medianOfThree(array, mid - eighth, mid, mid + eighth);
+        int c = medianOfThree(array, high - 2 * eighth, high - eighth, high);
+        return medianOfThree(array, a, b, c);
+    }
+
+    private int medianOfThree(IntAccess array, int i, int j, int k) {
+        notifyCompare(i, j);
+        if (array.get(i) < array.get(j)) {
+            notifyCompare(j, k);
+            if (array.get(j) < array.get(k)) {
+                return j;
+            }
+            notifyCompare(i, k);
+            return array.get(i) < array.get(k) ? k : i;
+        }
+        notifyCompare(i, k);
+        if (array.get(i) < array.get(k)) {
+            return i;
+        }
+        notifyCompare(j, k);
+        return array.get(j) < array.get(k) ? k : j;
+    }
+
+    private void insertionSort(IntAccess array, int low, int high) {
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low; j--) {
+                notifyCompare(j - 1, j);
+                if (array.get(j - 1) <= array.get(j)) {
+                    break;
+                }
+                swap(array, j - 1, j);
+            }
+        }
+    }
+
+    private void heapSort(IntAccess array, int low, int high) {
+        int size = high - low + 1;
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(array, low, i, size);
+        }
+        for (int end = size - 1; end > 0; end--) {
+            swap(array, low, low + end);
+            siftDown(array, low, 0, end);
+        }
+    }
+
+    /**
+     * array[offset, offset + size) をヒープとみなして root を沈める
+     */
+    private void siftDown(IntAccess array, int offset, int root, int size) {
+        while (true) {
+            int child = 2 * root + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size) {
+                notifyCompare(offset + child, offset + child + 1);
+                if (array.get(offset + child) < array.get(offset + child + 1)) {
+                    child++;
+                }
+            }
+            notifyCompare(offset + root, offset + child);
+            if (array.get(offset + root) >= array.get(offset + child)) {
+                return;
+            }
+            swap(array, offset + root, offset + child);
+            root = child;
+        }
+    }
+
+    private void swap(IntAccess array, int i, int j) {
+        notifySwap(i, j);
+        int temp = array.get(i);
+        array.set(i, array.get(j));
+        array.set(j, temp);
     }
 
-    private void swap(int[] array, int i, int j) {
-        notifyVisualizer(i, j);
-        int temp = array[i];
-        array[i] = array[j];
-        array[j] = temp;
+    /**
+     * IntBuffer の [position, limit) をその場で整列する（ダイレクトバッファ・マップしたファイルも可）
+     * position と limit は変更しない。イベントのインデックスはバッファの絶対位置。
+     * int[] 版と同じ実装を IntAccess 越しに使う。
+     */
+    @Override
+    public void sort(IntBuffer buffer) {
+        if (buffer == null || buffer.remaining() < 2) {
+            return;
+        }
+        if (buffer.isReadOnly()) {
+            throw new IllegalArgumentException("buffer must be writable");
+        }
+        int depthLimit = 2 * (31 - Integer.numberOfLeadingZeros(buffer.remaining()));
+        quickSort(IntAccess.of(buffer), buffer.position(), buffer.limit() - 1, depthLimit);
     }
 }
@@ -0,0 +1,332 @@
+package algorithm;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * 値の範囲を利用する非比較ソート
+ * max - min が小さければ計数ソート、それ以外は 1 バイトずつの LSD 基数ソートを行う。
+ * ヒストグラムと分配は配列をチャンクに分けて並列に処理する。
+ * 比較を行わないため、ビジュアライザーへの通知は行わない。
+ */
+public class RadixSort extends AbstractSortAlgorithm implements OffHeapSortAlgorithm {
+    private static final int COUNTING_RANGE_LIMIT = 1 << 16;
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+
+    private final ForkJoinPool pool;
+    private int[] buffer = new int[0];
+    private IntBuffer offHeapBuffer = IntBuffer.allocate(0);
+
+    public RadixSort() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool ヒストグラム・分配処理を実行するプール
+     */
+    public RadixSort(ForkJoinPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool must not be null");
+        }
+        this.pool = pool;
+    }
+
+    @Override
+    public void sort(int[] array) {
+        if (array == null || array.length < 2) {
+            return;
+        }
+        sort(IntAccess.of(array), 0, array.length, false);
+    }
+
+    /**
+     * 値の範囲が既知の配列を整列する（DataGenerator の min/max をそのまま渡せる）
+     * 範囲外の値が含まれている場合の動作は保証しない。
+     * @param array 対象の配列
+     * @param minInclusive 配列内の最小値以下の値
+     * @param maxInclusive 配列内の最大値以上の値
+     */
+    public void sort(int[] array, int minInclusive, int maxInclusive) {
+        if (minInclusive > maxInclusive) {
+            throw new IllegalArgumentException("minInclusive must be <= maxInclusive");
+        }
+        if (array == null || array.length < 2) {
+            return;
+        }
+        sort(IntAccess.of(array), 0, array.length, minInclusive, maxInclusive, false);
+    }
+
+    @Override
+    public String getName() {
+        return "Radix Sort";
+    }
+
+    /**
+     * 分配先のバッファと、チャンクごとの計数表（計数ソートの最大範囲分）
+     */
+    @Override
+    public long getScratchBytes(int length) {
+        return (long) length * Integer.BYTES + (long) chunkCount(length) * COUNTING_RANGE_LIMIT * Integer.BYTES;
+    }
+
+    /**
+     * IntBuffer の [position, limit) をその場で整列する
+     * ダイレクトバッファは基数ソートの作業領域もダイレクトバッファに確保するため、ヒープは増えない。
+     */
+    @Override
+    public void sort(IntBuffer data) {
+        if (data == null || data.remaining() < 2) {
+            return;
+        }
+        if (data.isReadOnly()) {
+            throw new IllegalArgumentException("buffer must be writable");
+        }
+        sort(IntAccess.of(data), data.position(), data.remaining(), data.isDirect());
+    }
+
+    /**
+     * 値の範囲が既知の IntBuffer を整列する（範囲外の値が含まれている場合の動作は保証しない）
+     */
+    public void sort(IntBuffer data, int minInclusive, int maxInclusive) {
+        if (minInclusive > maxInclusive) {
+            throw new IllegalArgumentException("minInclusive must be <= maxInclusive");
+        }
+        if (data == null || data.remaining() < 2) {
+            return;
+        }
+        if (data.isReadOnly()) {
+            throw new IllegalArgumentException("buffer must be writable");
+        }
+        sort(IntAccess.of(data), data.position(), data.remaining(), minInclusive, maxInclusive, data.isDirect());
+    }
+
+    /**
+     * data[base, base + n) の最小値・最大値をチャンクごとに並列に求めてから整列する
+     */
+    private void sort(IntAccess data, int base, int n, boolean offHeap) {
+        int chunks = chunkCount(n);
+        int[] mins = new int[chunks];
+        int[] maxs = new int[chunks];
+        forEachChunk(chunks, c -> {
+            int from = base + chunkStart(n, chunks, c);
+            int to = base + chunkStart(n, chunks, c + 1);
+            int min = data.get(from);
+            int max = min;
+            for (int i = from + 1; i < to; i++) {
+                int value = data.get(i);
+                if (value < min) {
+                    min = value;
+                } else if (value > max) {
+                    max = value;
+                }
+            }
+            mins[c] = min;
+            maxs[c] = max;
+        });
+        int min = mins[0];
+        int max = maxs[0];
+        for (int c = 1; c < chunks; c++) {
+            min = Math.min(min, mins[c]);
+            max = Math.max(max, maxs[c]);
+        }
+        sort(data, base, n, min, max, offHeap);
+    }
+
+    /**
+     * @param offHeap 基数ソートの作業領域をダイレクトバッファに取るか
+     */
+    private void sort(IntAccess data, int base, int n, int minInclusive, int maxInclusive, boolean offHeap) {
+        long range = (long) maxInclusive - minInclusive + 1;
+        if (range == 1) {
+            return;
+        }
+        if (range <= COUNTING_RANGE_LIMIT) {
+            countingSort(data, base, n, minInclusive, (int) range);
+        } else {
+            radixSort(data, base, n, minInclusive, range, offHeap ? offHeapScratch(n) : heapScratch(n));
+        }
+    }
+
+    private void countingSort(IntAccess data, int base, int n, int min, int range) {
+        int chunks = chunkCount(n);
+        int[][] counts = new int[chunks][range];
+        forEachChunk(chunks, c -> {
+            int[] local = counts[c];
+            int to = base + chunkStart(n, chunks, c + 1);
+            for (int i = base + chunkStart(n, chunks, c); i < to; i++) {
+                local[data.get(i) - min]++;
+            }
+        });
+
+        int[] total = counts[0];
+        for (int c = 1; c < chunks; c++) {
+            int[] local = counts[c];
+            for (int v = 0; v < range; v++) {
+                total[v] += local[v];
+            }
+        }
+
+        int k = base;
+        for (int v = 0; v < range; v++) {
+            int count = total[v];
+            if (count > 0) {
+                data.fill(k, k + count, min + v);
+                k += count;
+            }
+        }
+    }
+
+    /**
+     * value - min を符号なし整数として扱い、必要なバイト数だけ LSD 基数ソートする
+     * scratch の [0, n) を分配先として data と交互に使う。
+     */
+    private void radixSort(IntAccess data, int base, int n, int min, long range, IntAccess scratch) {
+        int bits = 32 - Integer.numberOfLeadingZeros((int) (range - 1));
+        int passes = (bits + RADIX_BITS - 1) / RADIX_BITS;
+        int chunks = chunkCount(n);
+        int[][] counts = new int[chunks][RADIX];
+
+        IntAccess src = data;
+        int srcBase = base;
+        IntAccess dst = scratch;
+        int dstBase = 0;
+        for (int pass = 0; pass < passes; pass++) {
+            int shift = pass * RADIX_BITS;
+            IntAccess from = src;
+            int fromBase = srcBase;
+            IntAccess to = dst;
+
+            forEachChunk(chunks, c -> {
+                int[] local = counts[c];
+                Arrays.fill(local, 0);
+                int end = fromBase + chunkStart(n, chunks, c + 1);
+                for (int i = fromBase + chunkStart(n, chunks, c); i < end; i++) {
+                    local[((from.get(i) - min) >>> shift) & (RADIX - 1)]++;
+                }
+            });
+
+            // 全要素が同じ桁を持つパスは並びが変わらないので省略
+            if (isSingleDigit(counts, n)) {
+                continue;
+            }
+
+            // チャンクごとの書き込み開始位置（桁順 → チャンク順）を求める
+            int offset = dstBase;
+            for (int d = 0; d < RADIX; d++) {
+                for (int c = 0; c < chunks; c++) {
+                    int count = counts[c][d];
+                    counts[c][d] = offset;
+                    offset += count;
+                }
+            }
+
+            forEachChunk(chunks, c -> {
+                int[] positions = counts[c];
+                int end = fromBase + chunkStart(n, chunks, c + 1);
+                for (int i = fromBase + chunkStart(n, chunks, c); i < end; i++) {
+                    int value = from.get(i);
+                    to.set(positions[((value - min) >>> shift) & (RADIX - 1)]++, value);
+                }
+            });
+
+            src = to;
+            dst = from;
+            int swapBase = srcBase;
+            srcBase = dstBase;
+            dstBase = swapBase;
+        }
+
+        if (src != data) {
+            for (int i = 0; i < n; i++) {
+                data.set(base + i, src.get(srcBase + i));
+            }
+        }
+    }
+
+    /**
+     * 呼び出し間で再利用するヒープ上の作業領域
+     */
+    private IntAccess heapScratch(int n) {
+        if (buffer.length < n) {
+            buffer = new int[n];
+        }
+        return IntAccess.of(buffer);
+    }
+
+    /**
+     * 呼び出し間で再利用するダイレクトバッファの作業領域
+     */
+    private IntAccess offHeapScratch(int n) {
+        if (offHeapBuffer.capacity() < n) {
+            if ((long) n * Integer.BYTES > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("buffer is too large for an off-heap work area: " + n);
+            }
+            offHeapBuffer = ByteBuffer.allocateDirect(n * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+        return IntAccess.of(offHeapBuffer);
+    }
+
+    private static boolean isSingleDigit(int[][] counts, int n) {
+        for (int d = 0; d < RADIX; d++) {
+            int sum = 0;
+            for (int[] local : counts) {
+                sum += local[d];
+            }
+            if (sum == n) {
+                return true;
+            }
+            if (sum > 0) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private int chunkCount(int n) {
+        if (n < PARALLEL_THRESHOLD) {
+            return 1;
+        }
+        return Math.max(1, Math.min(pool.getParallelism(), n / PARALLEL_THRESHOLD));
+    }
+
+    private static int chunkStart(int n, int chunks, int chunk) {
+        return (int) ((long) n * chunk / chunks);
+    }
+
+    private void forEachChunk(int chunks, IntConsumer action) {
+        if (chunks == 1) {
+            action.accept(0);
+        } else {
+            pool.invoke(new ChunkAction(action, 0, chunks));
+        }
+    }
+
+    private static final class ChunkAction extends RecursiveAction {
+        private final IntConsumer action;
+        private final int from;
+        private final int to;
+
+        private ChunkAction(IntConsumer action, int from, int to) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                action.accept(from);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ChunkAction(action, from, mid), new ChunkAction(action, mid, to));
+        }
+    }
+}
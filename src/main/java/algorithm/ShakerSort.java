@@ -12,8 +12,9 @@ public class ShakerSort extends AbstractSortAlgorithm {
             swapped = false;
             // 左 → 右
             for (int i = left; i < right; i++) {
-                notifyVisualizer(i, i + 1);
+                notifyCompare(i, i + 1);
                 if (array[i] > array[i + 1]) {
+                    notifySwap(i, i + 1);
                     int temp = array[i];
                     array[i] = array[i + 1];
                     array[i + 1] = temp;
@@ -25,8 +26,9 @@ public class ShakerSort extends AbstractSortAlgorithm {
             swapped = false;
             // 右 → 左
             for (int i = right; i > left; i--) {
-                notifyVisualizer(i, i - 1);
+                notifyCompare(i, i - 1);
                 if (array[i] < array[i - 1]) {
+                    notifySwap(i, i - 1);
                     int temp = array[i];
                     array[i] = array[i - 1];
                     array[i - 1] = temp;
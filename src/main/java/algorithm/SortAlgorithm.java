@@ -3,4 +3,11 @@ package algorithm;
 public interface SortAlgorithm {
     void sort(int[] array);
     String getName();
-}
\ No newline at end of file
+
+    /**
+     * length 要素の配列を整列するときに配列とは別に確保する作業領域のバイト数（上限の目安）
+     */
+    default long getScratchBytes(int length) {
+        return 0;
+    }
+}
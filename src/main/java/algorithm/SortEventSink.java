@@ -0,0 +1,39 @@
+package algorithm;
+
+/**
+ * ソート中のイベントを受け取るインターフェース
+ * インデックスはすべて int のまま渡されるため、通知ごとのボクシングは発生しない。
+ * 必要なイベントだけをオーバーライドすればよい。
+ */
+public interface SortEventSink {
+
+    /**
+     * array[i] と array[j] を比較した
+     */
+    default void onCompare(int i, int j) {
+    }
+
+    /**
+     * array[i] と array[j] を交換した（通知は交換の直前）
+     */
+    default void onSwap(int i, int j) {
+    }
+
+    /**
+     * ピボットを選択した（-1 で解除）
+     */
+    default void onPivot(int index) {
+    }
+
+    /**
+     * array[index] を読み出した
+     */
+    default void onRead(int index) {
+    }
+
+    /**
+     * array[index] に value を書き込んだ
+     */
+    default void onWrite(int index, int value) {
+    }
+}
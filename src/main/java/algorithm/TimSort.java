@@ -0,0 +1,519 @@
+package algorithm;
+
+/**
+ * 既存の昇順・降順の並び（ラン）を利用する適応型マージソート（TimSort 方式）
+ * 降順のランは反転して昇順にし、短いランは最小ラン長まで二分挿入ソートで伸ばす。
+ * マージ中に片側が連続して勝ち続けた場合はギャロッピングでまとめて移動する。
+ * 整列済み・逆順の入力はランが 1 つになるため O(n) で終わる。
+ */
+public class TimSort extends AbstractSortAlgorithm {
+    private static final int MIN_MERGE = 32;
+    private static final int MIN_GALLOP = 7;
+    private static final int MAX_RUN_STACK = 49;
+
+    private final int[] runBase = new int[MAX_RUN_STACK];
+    private final int[] runLength = new int[MAX_RUN_STACK];
+    private int stackSize;
+    private int minGallop;
+    private int[] buffer = new int[0];
+    private int[] a;
+
+    @Override
+    public void sort(int[] array) {
+        if (array == null || array.length < 2) {
+            return;
+        }
+        int n = array.length;
+        a = array;
+        stackSize = 0;
+        minGallop = MIN_GALLOP;
+        try {
+            if (n < MIN_MERGE) {
+                int initialRun = countRunAndMakeAscending(0, n);
+                binaryInsertionSort(0, n, initialRun);
+                return;
+            }
+
+            int minRun = minRunLength(n);
+            int low = 0;
+            int remaining = n;
+            do {
+                int run = countRunAndMakeAscending(low, n);
+                if (run < minRun) {
+                    int forced = Math.min(remaining, minRun);
+                    binaryInsertionSort(low, low + forced, low + run);
+                    run = forced;
+                }
+                pushRun(low, run);
+                mergeCollapse();
+                low += run;
+                remaining -= run;
+            } while (remaining != 0);
+            mergeForceCollapse();
+        } finally {
+            a = null;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "Tim Sort";
+    }
+
+    /**
+     * マージ用の一時バッファ（短い側のランを退避する。最大で配列長まで伸びる）
+     */
+    @Override
+    public long getScratchBytes(int length) {
+        return (long) length * Integer.BYTES;
+    }
+
+    /**
+     * n が 2 のべき乗に近い場合は MIN_MERGE / 2、それ以外は
+     * n / minRun が 2 のべき乗をわずかに下回るような値を返す
+     */
+    private static int minRunLength(int n) {
+        int r = 0;
+        while (n >= MIN_MERGE) {
+            r |= n & 1;
+            n >>= 1;
+        }
+        return n + r;
+    }
+
+    /**
+     * low から始まるランの長さを返す。狭義降順のランは反転して昇順にする
+     */
+    private int countRunAndMakeAscending(int low, int high) {
+        int runHigh = low + 1;
+        if (runHigh == high) {
+            return 1;
+        }
+        notifyCompare(low, runHigh);
+        if (a[runHigh++] < a[low]) {
+            while (runHigh < high) {
+                notifyCompare(runHigh - 1, runHigh);
+                if (a[runHigh] >= a[runHigh - 1]) {
+                    break;
+                }
+                runHigh++;
+            }
+            reverseRange(low, runHigh);
+        } else {
+            while (runHigh < high) {
+                notifyCompare(runHigh - 1, runHigh);
+                if (a[runHigh] < a[runHigh - 1]) {
+                    break;
+                }
+                runHigh++;
+            }
+        }
+        return runHigh - low;
+    }
+
+    private void reverseRange(int low, int high) {
+        high--;
+        while (low < high) {
+            notifySwap(low, high);
+            int temp = a[low];
+            a[low++] = a[high];
+            a[high--] = temp;
+        }
+    }
+
+    /**
+     * a[low, start) は整列済みとして、a[start, high) を二分探索で挿入する
+     */
+    private void binaryInsertionSort(int low, int high, int start) {
+        if (start == low) {
+            start++;
+        }
+        for (; start < high; start++) {
+            int pivot = a[start];
+            int left = low;
+            int right = start;
+            while (left < right) {
+                int mid = (left + right) >>> 1;
+                notifyCompare(start, mid);
+                if (pivot < a[mid]) {
+                    right = mid;
+                } else {
+                    left = mid + 1;
+                }
+            }
+            System.arraycopy(a, left, a, left + 1, start - left);
+            a[left] = pivot;
+            notifyWriteRange(a, left, start + 1);
+        }
+    }
+
+    private void pushRun(int base, int length) {
+        runBase[stackSize] = base;
+        runLength[stackSize] = length;
+        stackSize++;
+    }
+
+    /**
+     * スタック上のラン長が次の不変条件を満たすまでマージする
+     * 1. runLength[i - 3] > runLength[i - 2] + runLength[i - 1]
+     * 2. runLength[i - 2] > runLength[i - 1]
+     */
+    private void mergeCollapse() {
+        while (stackSize > 1) {
+            int n = stackSize - 2;
+            if ((n > 0 && runLength[n - 1] <= runLength[n] + runLength[n + 1])
+                || (n > 1 && runLength[n - 2] <= runLength[n] + runLength[n - 1])) {
+                if (runLength[n - 1] < runLength[n + 1]) {
+                    n--;
+                }
+            } else if (runLength[n] > runLength[n + 1]) {
+                break;
+            }
+            mergeAt(n);
+        }
+    }
+
+    private void mergeForceCollapse() {
+        while (stackSize > 1) {
+            int n = stackSize - 2;
+            if (n > 0 && runLength[n - 1] < runLength[n + 1]) {
+                n--;
+            }
+            mergeAt(n);
+        }
+    }
+
+    /**
+     * スタックの i 番目と i + 1 番目のランをマージする
+     */
+    private void mergeAt(int i) {
+        int base1 = runBase[i];
+        int length1 = runLength[i];
+        int base2 = runBase[i + 1];
+        int length2 = runLength[i + 1];
+        int end = base2 + length2;
+
+        runLength[i] = length1 + length2;
+        if (i == stackSize - 3) {
+            runBase[i + 1] = runBase[i + 2];
+            runLength[i + 1] = runLength[i + 2];
+        }
+        stackSize--;
+
+        // run2 の先頭より小さい run1 の前半、run1 の末尾より大きい run2 の後半は既に正しい位置にある
+        int k = gallopRight(a[base2], a, base1, length1, 0);
+        base1 += k;
+        length1 -= k;
+        if (length1 == 0) {
+            return;
+        }
+        length2 = gallopLeft(a[base1 + length1 - 1], a, base2, length2, length2 - 1);
+        if (length2 == 0) {
+            return;
+        }
+
+        if (length1 <= length2) {
+            mergeLow(base1, length1, base2, length2);
+        } else {
+            mergeHigh(base1, length1, base2, length2);
+        }
+        notifyWriteRange(a, base1, end);
+    }
+
+    /**
+     * 整列済みの array[base, base + length) の中で key を挿入すべき最左の位置を返す
+     * hint の位置から指数的に探索範囲を広げ、最後に二分探索する
+     */
+    private static int gallopLeft(int key, int[] array, int base, int length, int hint) {
+        int lastOffset = 0;
+        int offset = 1;
+        if (key > array[base + hint]) {
+            int maxOffset = length - hint;
+            while (offset < maxOffset && key > array[base + hint + offset]) {
+                lastOffset = offset;
+                offset = (offset << 1) + 1;
+                if (offset <= 0) {
+                    offset = maxOffset;
+                }
+            }
+            if (offset > maxOffset) {
+                offset = maxOffset;
+            }
+            lastOffset += hint;
+            offset += hint;
+        } else {
+            int maxOffset = hint + 1;
+            while (offset < maxOffset && key <= array[base + hint - offset]) {
+                lastOffset = offset;
+                offset = (offset << 1) + 1;
+                if (offset <= 0) {
+                    offset = maxOffset;
+                }
+            }
+            if (offset > maxOffset) {
+                offset = maxOffset;
+            }
+            int temp = lastOffset;
+            lastOffset = hint - offset;
+            offset = hint - temp;
+        }
+
+        lastOffset++;
+        while (lastOffset < offset) {
+            int mid = lastOffset + ((offset - lastOffset) >>> 1);
+            if (key > array[base + mid]) {
+                lastOffset = mid + 1;
+            } else {
+                offset = mid;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * gallopLeft と同様だが、等しい要素がある場合はその最右の次の位置を返す
+     */
+    private static int gallopRight(int key, int[] array, int base, int length, int hint) {
+        int lastOffset = 0;
+        int offset = 1;
+        if (key < array[base + hint]) {
+            int maxOffset = hint + 1;
+            while (offset < maxOffset && key < array[base + hint - offset]) {
+                lastOffset = offset;
+                offset = (offset << 1) + 1;
+                if (offset <= 0) {
+                    offset = maxOffset;
+                }
+            }
+            if (offset > maxOffset) {
+                offset = maxOffset;
+            }
+            int temp = lastOffset;
+            lastOffset = hint - offset;
+            offset = hint - temp;
+        } else {
+            int maxOffset = length - hint;
+            while (offset < maxOffset && key >= array[base + hint + offset]) {
+                lastOffset = offset;
+                offset = (offset << 1) + 1;
+                if (offset <= 0) {
+                    offset = maxOffset;
+                }
+            }
+            if (offset > maxOffset) {
+                offset = maxOffset;
+            }
+            lastOffset += hint;
+            offset += hint;
+        }
+
+        lastOffset++;
+        while (lastOffset < offset) {
+            int mid = lastOffset + ((offset - lastOffset) >>> 1);
+            if (key < array[base + mid]) {
+                offset = mid;
+            } else {
+                lastOffset = mid + 1;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * run1 が短い場合のマージ。run1 を作業用バッファへ退避し、先頭から埋めていく
+     * 前提: a[base1] > a[base2]、run1 の末尾は run2 のどの要素よりも大きい
+     */
+    private void mergeLow(int base1, int length1, int base2, int length2) {
+        int[] temp = ensureCapacity(length1);
+        System.arraycopy(a, base1, temp, 0, length1);
+        int cursor1 = 0;
+        int cursor2 = base2;
+        int dest = base1;
+
+        a[dest++] = a[cursor2++];
+        if (--length2 == 0) {
+            System.arraycopy(temp, cursor1, a, dest, length1);
+            return;
+        }
+        if (length1 == 1) {
+            System.arraycopy(a, cursor2, a, dest, length2);
+            a[dest + length2] = temp[cursor1];
+            return;
+        }
+
+        int gallop = minGallop;
+        outer:
+        while (true) {
+            int count1 = 0;
+            int count2 = 0;
+
+            // 1 要素ずつ比較し、片側が gallop 回連続で勝ったらギャロッピングへ切り替える
+            do {
+                if (a[cursor2] < temp[cursor1]) {
+                    a[dest++] = a[cursor2++];
+                    count2++;
+                    count1 = 0;
+                    if (--length2 == 0) {
+                        break outer;
+                    }
+                } else {
+                    a[dest++] = temp[cursor1++];
+                    count1++;
+                    count2 = 0;
+                    if (--length1 == 1) {
+                        break outer;
+                    }
+                }
+            } while ((count1 | count2) < gallop);
+
+            do {
+                count1 = gallopRight(a[cursor2], temp, cursor1, length1, 0);
+                if (count1 != 0) {
+                    System.arraycopy(temp, cursor1, a, dest, count1);
+                    dest += count1;
+                    cursor1 += count1;
+                    length1 -= count1;
+                    if (length1 <= 1) {
+                        break outer;
+                    }
+                }
+                a[dest++] = a[cursor2++];
+                if (--length2 == 0) {
+                    break outer;
+                }
+
+                count2 = gallopLeft(temp[cursor1], a, cursor2, length2, 0);
+                if (count2 != 0) {
+                    System.arraycopy(a, cursor2, a, dest, count2);
+                    dest += count2;
+                    cursor2 += count2;
+                    length2 -= count2;
+                    if (length2 == 0) {
+                        break outer;
+                    }
+                }
+                a[dest++] = temp[cursor1++];
+                if (--length1 == 1) {
+                    break outer;
+                }
+                gallop--;
+            } while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+            if (gallop < 0) {
+                gallop = 0;
+            }
+            gallop += 2;
+        }
+        minGallop = Math.max(1, gallop);
+
+        if (length1 == 1) {
+            System.arraycopy(a, cursor2, a, dest, length2);
+            a[dest + length2] = temp[cursor1];
+        } else {
+            System.arraycopy(temp, cursor1, a, dest, length1);
+        }
+    }
+
+    /**
+     * run2 が短い場合のマージ。run2 を作業用バッファへ退避し、末尾から埋めていく
+     */
+    private void mergeHigh(int base1, int length1, int base2, int length2) {
+        int[] temp = ensureCapacity(length2);
+        System.arraycopy(a, base2, temp, 0, length2);
+        int cursor1 = base1 + length1 - 1;
+        int cursor2 = length2 - 1;
+        int dest = base2 + length2 - 1;
+
+        a[dest--] = a[cursor1--];
+        if (--length1 == 0) {
+            System.arraycopy(temp, 0, a, dest - (length2 - 1), length2);
+            return;
+        }
+        if (length2 == 1) {
+            dest -= length1;
+            cursor1 -= length1;
+            System.arraycopy(a, cursor1 + 1, a, dest + 1, length1);
+            a[dest] = temp[cursor2];
+            return;
+        }
+
+        int gallop = minGallop;
+        outer:
+        while (true) {
+            int count1 = 0;
+            int count2 = 0;
+
+            do {
+                if (temp[cursor2] < a[cursor1]) {
+                    a[dest--] = a[cursor1--];
+                    count1++;
+                    count2 = 0;
+                    if (--length1 == 0) {
+                        break outer;
+                    }
+                } else {
+                    a[dest--] = temp[cursor2--];
+                    count2++;
+                    count1 = 0;
+                    if (--length2 == 1) {
+                        break outer;
+                    }
+                }
+            } while ((count1 | count2) < gallop);
+
+            do {
+                count1 = length1 - gallopRight(temp[cursor2], a, base1, length1, length1 - 1);
+                if (count1 != 0) {
+                    dest -= count1;
+                    cursor1 -= count1;
+                    length1 -= count1;
+                    System.arraycopy(a, cursor1 + 1, a, dest + 1, count1);
+                    if (length1 == 0) {
+                        break outer;
+                    }
+                }
+                a[dest--] = temp[cursor2--];
+                if (--length2 == 1) {
+                    break outer;
+                }
+
+                count2 = length2 - gallopLeft(a[cursor1], temp, 0, length2, length2 - 1);
+                if (count2 != 0) {
+                    dest -= count2;
+                    cursor2 -= count2;
+                    length2 -= count2;
+                    System.arraycopy(temp, cursor2 + 1, a, dest + 1, count2);
+                    if (length2 <= 1) {
+                        break outer;
+                    }
+                }
+                a[dest--] = a[cursor1--];
+                if (--length1 == 0) {
+                    break outer;
+                }
+                gallop--;
+            } while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+            if (gallop < 0) {
+                gallop = 0;
+            }
+            gallop += 2;
+        }
+        minGallop = Math.max(1, gallop);
+
+        if (length2 == 1) {
+            dest -= length1;
+            cursor1 -= length1;
+            System.arraycopy(a, cursor1 + 1, a, dest + 1, length1);
+            a[dest] = temp[cursor2];
+        } else {
+            System.arraycopy(temp, 0, a, dest - (length2 - 1), length2);
+        }
+    }
+
+    private int[] ensureCapacity(int minCapacity) {
+        if (buffer.length < minCapacity) {
+            // 呼び出し間で再利用するため倍々で確保する（上限は配列長）
+            buffer = new int[Math.min(a.length, Math.max(minCapacity, buffer.length * 2))];
+        }
+        return buffer;
+    }
+}
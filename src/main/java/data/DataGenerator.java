@@ -1,13 +1,25 @@
 package data;
 
-import java.util.Random;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.SplittableRandom;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 /**
  * ソートアルゴリズムのテスト用配列を生成するクラス
  */
 public class DataGenerator {
     private static final int DEFAULT_MAX = 100;
-    private final Random random;
+    /** チャンクの要素数。出力はこの値で決まり、スレッド数には依存しない */
+    static final int CHUNK_SIZE = 1 << 16;
+    private static final int PARALLEL_THRESHOLD = 1 << 18;
+    private final SplittableRandom seeds;
+    private int distinctValues = 8;
+    private double zipfExponent = 1.0;
+    private int sawtoothTeeth = 4;
+    private int runLength = 16;
 
     /**
      * 配列の種類を表すEnum
@@ -15,7 +27,21 @@ public class DataGenerator {
     public enum ArrayType {
         RANDOM("Random"),
         REVERSED("Reversed"),
-        NEARLY_SORTED("Nearly Sorted");
+        NEARLY_SORTED("Nearly Sorted"),
+        /** distinctValues 種類の値だけからなる配列 */
+        FEW_UNIQUE("Few Unique"),
+        /** 小さい値ほど出現しやすい Zipf 分布（指数 zipfExponent） */
+        ZIPF("Zipf"),
+        /** 前半が昇順、後半が降順の山形 */
+        ORGAN_PIPE("Organ Pipe"),
+        /** sawtoothTeeth 個の昇順の歯が並ぶのこぎり波 */
+        SAWTOOTH("Sawtooth"),
+        /** すべて同じ値 */
+        ALL_EQUAL("All Equal"),
+        /** 先頭・中央・末尾の中央値をピボットにするクイックソートの最悪ケース（Musser の構成） */
+        MEDIAN_OF_THREE_KILLER("Median-of-3 Killer"),
+        /** 平均 runLength 要素の昇順ランをランダムに並べたもの */
+        RANDOM_RUNS("Random Runs");
 
         private final String displayName;
 
@@ -29,15 +55,71 @@ public class DataGenerator {
     }
 
     public DataGenerator() {
-        this(new Random());
+        this(new SplittableRandom());
     }
 
     public DataGenerator(long seed) {
-        this(new Random(seed));
+        this(new SplittableRandom(seed));
     }
 
-    private DataGenerator(Random random) {
-        this.random = random;
+    private DataGenerator(SplittableRandom seeds) {
+        this.seeds = seeds;
+    }
+
+    /**
+     * FEW_UNIQUE で使う値の種類数を設定（既定 8）
+     */
+    public void setDistinctValues(int distinctValues) {
+        if (distinctValues < 1) {
+            throw new IllegalArgumentException("distinctValues must be >= 1");
+        }
+        this.distinctValues = distinctValues;
+    }
+
+    public int getDistinctValues() {
+        return distinctValues;
+    }
+
+    /**
+     * ZIPF の指数を設定（既定 1.0。大きいほど小さい値に偏る）
+     */
+    public void setZipfExponent(double zipfExponent) {
+        if (!(zipfExponent > 0) || Double.isInfinite(zipfExponent)) {
+            throw new IllegalArgumentException("zipfExponent must be a positive finite number");
+        }
+        this.zipfExponent = zipfExponent;
+    }
+
+    public double getZipfExponent() {
+        return zipfExponent;
+    }
+
+    /**
+     * SAWTOOTH の歯の数を設定（既定 4）
+     */
+    public void setSawtoothTeeth(int sawtoothTeeth) {
+        if (sawtoothTeeth < 1) {
+            throw new IllegalArgumentException("sawtoothTeeth must be >= 1");
+        }
+        this.sawtoothTeeth = sawtoothTeeth;
+    }
+
+    public int getSawtoothTeeth() {
+        return sawtoothTeeth;
+    }
+
+    /**
+     * RANDOM_RUNS のランの平均長を設定（既定 16、CHUNK_SIZE まで）
+     */
+    public void setRunLength(int runLength) {
+        if (runLength < 1 || runLength > CHUNK_SIZE) {
+            throw new IllegalArgumentException("runLength must be between 1 and " + CHUNK_SIZE);
+        }
+        this.runLength = runLength;
+    }
+
+    public int getRunLength() {
+        return runLength;
     }
 
     /**
@@ -58,19 +140,7 @@ public class DataGenerator {
      * ランダム配列を生成
      */
     public int[] generateRandomArray(int size, int minInclusive, int maxInclusive) {
-        if (size < 0) {
-            throw new IllegalArgumentException("size must be >= 0");
-        }
-        if (minInclusive > maxInclusive) {
-            throw new IllegalArgumentException("minInclusive must be <= maxInclusive");
-        }
-
-        int[] data = new int[size];
-        int bound = maxInclusive - minInclusive + 1;
-        for (int i = 0; i < size; i++) {
-            data[i] = minInclusive + random.nextInt(bound);
-        }
-        return data;
+        return generateArray(ArrayType.RANDOM, size, minInclusive, maxInclusive);
     }
 
     /**
@@ -85,6 +155,8 @@ public class DataGenerator {
 
     /**
      * 指定された種類の配列を生成
+     * 配列を CHUNK_SIZE 要素ごとのチャンクに分け、チャンクごとに独立した乱数列で埋める。
+     * チャンクのシードは呼び出しごとのシードから順に引くため、同じシードなら並列度によらず同じ配列になる。
      * @param type 配列の種類
      * @param size 配列のサイズ
      * @param minInclusive 最小値
@@ -92,82 +164,392 @@ public class DataGenerator {
      * @return 生成された配列
      */
     public int[] generateArray(ArrayType type, int size, int minInclusive, int maxInclusive) {
-        switch (type) {
-            case RANDOM:
-                return generateRandomArray(size, minInclusive, maxInclusive);
-            case REVERSED:
-                return generateReversedArray(size, minInclusive, maxInclusive);
-            case NEARLY_SORTED:
-                return generateNearlySortedArray(size, minInclusive, maxInclusive);
-            default:
-                throw new IllegalArgumentException("Unknown array type: " + type);
+        Plan plan = new Plan(type, size, minInclusive, maxInclusive);
+        int[] data = new int[size];
+        IntStream chunkIndices = IntStream.range(0, plan.chunkCount());
+        if (size >= PARALLEL_THRESHOLD) {
+            chunkIndices = chunkIndices.parallel();
         }
+        chunkIndices.forEach(c -> plan.fillChunk(c, data, c * CHUNK_SIZE));
+        return data;
     }
 
     /**
-     * 逆順に並んだ配列を生成
-     * @param size 配列のサイズ
-     * @param minInclusive 最小値
-     * @param maxInclusive 最大値
-     * @return 降順に並んだ配列
+     * 配列を確保せずに値を順に生成するストリーム
+     * 同じシード・同じ呼び出し順なら generateArray と同じ値を返す。
+     * チャンク単位で分割できる SIZED なストリームなので、parallel() にしても順序と値は変わらない。
+     * 種類ごとのパラメータは呼び出し時点の値が使われる。
+     * @param size 要素数（int の範囲を超えてもよい）
      */
-    private int[] generateReversedArray(int size, int minInclusive, int maxInclusive) {
-        if (size < 0) {
-            throw new IllegalArgumentException("size must be >= 0");
+    public IntStream stream(ArrayType type, long size, int minInclusive, int maxInclusive) {
+        return StreamSupport.intStream(spliterator(type, size, minInclusive, maxInclusive), false);
+    }
+
+    /**
+     * stream と同じ値を返す Spliterator
+     * 消費中は 1 チャンク分（CHUNK_SIZE 要素）のバッファだけを持つ。
+     */
+    public Spliterator.OfInt spliterator(ArrayType type, long size, int minInclusive, int maxInclusive) {
+        return new ChunkSpliterator(new Plan(type, size, minInclusive, maxInclusive), 0, size);
+    }
+
+    /**
+     * 1 回の生成呼び出しの内容
+     * チャンクごとの乱数列とパラメータを呼び出し時点で確定させ、どのチャンクもいつでも同じ値で埋められるようにする。
+     */
+    private final class Plan {
+        private final ArrayType type;
+        private final long size;
+        private final int minInclusive;
+        private final long range;
+        private final long[] chunkSeeds;
+        private final ZipfSampler zipf;
+        private final int distinctValues = DataGenerator.this.distinctValues;
+        private final int sawtoothTeeth = DataGenerator.this.sawtoothTeeth;
+        private final int runLength = DataGenerator.this.runLength;
+
+        private Plan(ArrayType type, long size, int minInclusive, int maxInclusive) {
+            if (type == null) {
+                throw new IllegalArgumentException("type must not be null");
+            }
+            if (size < 0) {
+                throw new IllegalArgumentException("size must be >= 0");
+            }
+            if (minInclusive > maxInclusive) {
+                throw new IllegalArgumentException("minInclusive must be <= maxInclusive");
+            }
+            long chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            if (chunks > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("size is too large: " + size);
+            }
+            this.type = type;
+            this.size = size;
+            this.minInclusive = minInclusive;
+            this.range = (long) maxInclusive - minInclusive + 1;
+
+            SplittableRandom root = new SplittableRandom(seeds.nextLong());
+            this.chunkSeeds = new long[(int) chunks];
+            for (int c = 0; c < chunkSeeds.length; c++) {
+                chunkSeeds[c] = root.nextLong();
+            }
+            this.zipf = type == ArrayType.ZIPF ? new ZipfSampler(range, zipfExponent) : null;
         }
-        if (minInclusive > maxInclusive) {
-            throw new IllegalArgumentException("minInclusive must be <= maxInclusive");
+
+        int chunkCount() {
+            return chunkSeeds.length;
         }
 
-        int[] data = new int[size];
-        int range = maxInclusive - minInclusive + 1;
-        
-        // 昇順に値を割り当てて逆順に配置
-        for (int i = 0; i < size; i++) {
-            data[i] = maxInclusive - (i % range);
+        int chunkLength(int chunk) {
+            return (int) Math.min(CHUNK_SIZE, size - (long) chunk * CHUNK_SIZE);
+        }
+
+        /**
+         * チャンク chunk の値を dst[offset, offset + chunkLength(chunk)) に書き込む
+         * 乱数列はチャンクのシードから毎回作り直すので、同じチャンクを何度埋めても同じ値になる。
+         */
+        void fillChunk(int chunk, int[] dst, int offset) {
+            long from = (long) chunk * CHUNK_SIZE;
+            int length = chunkLength(chunk);
+            SplittableRandom random = new SplittableRandom(chunkSeeds[chunk]);
+            switch (type) {
+                case RANDOM:
+                    fillRandom(dst, offset, length, random);
+                    break;
+                case REVERSED:
+                    for (int j = 0; j < length; j++) {
+                        dst[offset + j] = (int) (minInclusive + range - 1 - (from + j) % range);
+                    }
+                    break;
+                case NEARLY_SORTED:
+                    fillNearlySorted(dst, offset, from, length, random);
+                    break;
+                case FEW_UNIQUE:
+                    for (int j = 0; j < length; j++) {
+                        dst[offset + j] = (int) (minInclusive + random.nextInt(distinctValues) * range / distinctValues);
+                    }
+                    break;
+                case ZIPF:
+                    for (int j = 0; j < length; j++) {
+                        dst[offset + j] = (int) (minInclusive + zipf.sample(random) - 1);
+                    }
+                    break;
+                case ORGAN_PIPE: {
+                    long half = (size + 1) / 2;
+                    for (int j = 0; j < length; j++) {
+                        long i = from + j;
+                        long step = i < half ? i : size - 1 - i;
+                        dst[offset + j] = (int) (minInclusive + scale(step, range, half));
+                    }
+                    break;
+                }
+                case SAWTOOTH: {
+                    long period = Math.max(1, (size + sawtoothTeeth - 1) / sawtoothTeeth);
+                    for (int j = 0; j < length; j++) {
+                        dst[offset + j] = (int) (minInclusive + scale((from + j) % period, range, period));
+                    }
+                    break;
+                }
+                case ALL_EQUAL:
+                    Arrays.fill(dst, offset, offset + length, minInclusive);
+                    break;
+                case MEDIAN_OF_THREE_KILLER:
+                    fillMedianOfThreeKiller(dst, offset, from, length);
+                    break;
+                case RANDOM_RUNS:
+                    fillRandomRuns(dst, offset, length, random);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown array type: " + type);
+            }
+        }
+
+        private void fillRandom(int[] dst, int offset, int length, SplittableRandom random) {
+            if (range <= Integer.MAX_VALUE) {
+                int bound = (int) range;
+                for (int j = 0; j < length; j++) {
+                    dst[offset + j] = minInclusive + random.nextInt(bound);
+                }
+            } else {
+                for (int j = 0; j < length; j++) {
+                    dst[offset + j] = (int) random.nextLong(minInclusive, minInclusive + range);
+                }
+            }
+        }
+
+        /**
+         * ほぼ整列された値を書き込む
+         * 全体に均等に広がる昇順の値を直接並べ、チャンク内で要素数の 10% だけランダムに入れ替える。
+         * ソートを経由しないため O(n) で作れる。
+         */
+        private void fillNearlySorted(int[] dst, int offset, long from, int length, SplittableRandom random) {
+            for (int j = 0; j < length; j++) {
+                dst[offset + j] = (int) (minInclusive + scale(from + j, range, size));
+            }
+
+            int swapCount = Math.max(1, length / 10);
+            for (int k = 0; k < swapCount; k++) {
+                int idx1 = offset + random.nextInt(length);
+                int idx2 = offset + random.nextInt(length);
+
+                int temp = dst[idx1];
+                dst[idx1] = dst[idx2];
+                dst[idx2] = temp;
+            }
+        }
+
+        /**
+         * Musser の median-of-3 killer 列（1..n の順列）を値の範囲に縮めて書き込む
+         * k = n / 2 として、前半は奇数番目に i、偶数番目に k + i、後半は 2i を置く。
+         */
+        private void fillMedianOfThreeKiller(int[] dst, int offset, long from, int length) {
+            long k = size / 2;
+            for (int j = 0; j < length; j++) {
+                long i = from + j;
+                long rank;
+                if (i < k) {
+                    rank = i % 2 == 0 ? i + 1 : k + i;
+                } else if (i < 2 * k) {
+                    rank = 2 * (i - k + 1);
+                } else {
+                    rank = size;
+                }
+                dst[offset + j] = (int) (minInclusive + scale(rank - 1, range, size));
+            }
+        }
+
+        /**
+         * 長さ 1..2*runLength-1 のランダムな値の昇順ランを書き込む（ランはチャンクをまたがない）
+         */
+        private void fillRandomRuns(int[] dst, int offset, int length, SplittableRandom random) {
+            int start = 0;
+            while (start < length) {
+                int runEnd = (int) Math.min(length, (long) start + 1 + random.nextInt(2 * runLength - 1));
+                fillRandom(dst, offset + start, runEnd - start, random);
+                Arrays.sort(dst, offset + start, offset + runEnd);
+                start = runEnd;
+            }
         }
-        
-        return data;
     }
 
     /**
-     * ほぼ整列された配列を生成
-     * ランダムな配列から90%をソートして、10%だけシャッフルさせる
-     * @param size 配列のサイズ
-     * @param minInclusive 最小値
-     * @param maxInclusive 最大値
-     * @return ほぼ整列された配列
+     * floor(numerator * range / denominator) を求める（0 <= numerator < denominator、range <= 2^32）
+     * 添字が 2^31 を超えると積が long からあふれるので、その場合は double で見積もってから
+     * 128 ビットの積どうしを比べて ±1 を補正する。
      */
-    private int[] generateNearlySortedArray(int size, int minInclusive, int maxInclusive) {
-        if (size < 0) {
-            throw new IllegalArgumentException("size must be >= 0");
+    private static long scale(long numerator, long range, long denominator) {
+        if (numerator <= Integer.MAX_VALUE) {
+            return numerator * range / denominator;
+        }
+        long estimate = (long) ((double) numerator * range / denominator);
+        while (estimate > 0 && productGreater(estimate, denominator, numerator, range)) {
+            estimate--;
         }
-        if (minInclusive > maxInclusive) {
-            throw new IllegalArgumentException("minInclusive must be <= maxInclusive");
+        while (!productGreater(estimate + 1, denominator, numerator, range)) {
+            estimate++;
         }
+        return estimate;
+    }
 
-        // 最初にランダム配列を生成してソート
-        int[] data = generateRandomArray(size, minInclusive, maxInclusive);
-        java.util.Arrays.sort(data);
+    /**
+     * 非負の a * b > c * d を桁あふれなしに判定する
+     */
+    private static boolean productGreater(long a, long b, long c, long d) {
+        long high1 = Math.multiplyHigh(a, b);
+        long high2 = Math.multiplyHigh(c, d);
+        if (high1 != high2) {
+            return high1 > high2;
+        }
+        return Long.compareUnsigned(a * b, c * d) > 0;
+    }
 
-        // 全体の10%の要素をランダムに入れ替え
-        int swapCount = Math.max(1, size / 10);
-        for (int i = 0; i < swapCount; i++) {
-            int idx1 = random.nextInt(size);
-            int idx2 = random.nextInt(size);
-            
-            // スワップ
-            int temp = data[idx1];
-            data[idx1] = data[idx2];
-            data[idx2] = temp;
+    /**
+     * Plan の [index, end) をチャンク単位で生成しながら返す Spliterator
+     * 分割はチャンク境界で行うので、分割後の各部分も同じ値を生成する。
+     */
+    private static final class ChunkSpliterator implements Spliterator.OfInt {
+        private final Plan plan;
+        private long index;
+        private final long end;
+        private int[] buffer;
+        private long bufferStart = -1;
+
+        private ChunkSpliterator(Plan plan, long index, long end) {
+            this.plan = plan;
+            this.index = index;
+            this.end = end;
         }
 
-        return data;
+        /**
+         * index を含むチャンクをバッファに用意し、バッファ内の位置を返す
+         */
+        private int load() {
+            int chunk = (int) (index / CHUNK_SIZE);
+            long chunkStart = (long) chunk * CHUNK_SIZE;
+            if (bufferStart != chunkStart) {
+                if (buffer == null) {
+                    buffer = new int[(int) Math.min(CHUNK_SIZE, plan.size)];
+                }
+                plan.fillChunk(chunk, buffer, 0);
+                bufferStart = chunkStart;
+            }
+            return (int) (index - chunkStart);
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (index >= end) {
+                return false;
+            }
+            int position = load();
+            action.accept(buffer[position]);
+            index++;
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            while (index < end) {
+                int from = load();
+                int to = (int) (Math.min(bufferStart + CHUNK_SIZE, end) - bufferStart);
+                for (int j = from; j < to; j++) {
+                    action.accept(buffer[j]);
+                }
+                index = bufferStart + to;
+            }
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            long firstBoundary = index / CHUNK_SIZE + 1;
+            long lastBoundary = (end - 1) / CHUNK_SIZE;
+            if (index >= end || firstBoundary > lastBoundary) {
+                return null;
+            }
+            long split = ((firstBoundary + lastBoundary) >>> 1) * CHUNK_SIZE;
+            ChunkSpliterator prefix = new ChunkSpliterator(plan, index, split);
+            prefix.buffer = buffer;
+            prefix.bufferStart = bufferStart;
+            buffer = null;
+            bufferStart = -1;
+            index = split;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+        }
+    }
+
+    /**
+     * 1..n の整数を確率 1/k^s に比例して返す Zipf 分布のサンプラー
+     * Hörmann と Derflinger の rejection-inversion 法で、n が大きくてもテーブルを持たずに O(1) で引ける。
+     */
+    private static final class ZipfSampler {
+        private final long n;
+        private final double exponent;
+        private final double hIntegralX1;
+        private final double hIntegralN;
+        private final double s;
+
+        ZipfSampler(long n, double exponent) {
+            this.n = n;
+            this.exponent = exponent;
+            this.hIntegralX1 = hIntegral(1.5) - 1;
+            this.hIntegralN = hIntegral(n + 0.5);
+            this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+        }
+
+        long sample(SplittableRandom random) {
+            while (true) {
+                double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+                double x = hIntegralInverse(u);
+                long k = (long) (x + 0.5);
+                if (k < 1) {
+                    k = 1;
+                } else if (k > n) {
+                    k = n;
+                }
+                if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                    return k;
+                }
+            }
+        }
+
+        private double hIntegral(double x) {
+            double logX = Math.log(x);
+            return helper2((1 - exponent) * logX) * logX;
+        }
+
+        private double h(double x) {
+            return Math.exp(-exponent * Math.log(x));
+        }
+
+        private double hIntegralInverse(double x) {
+            double t = Math.max(-1, x * (1 - exponent));
+            return Math.exp(helper1(t) * x);
+        }
+
+        /** log(1 + x) / x（x が 0 付近でも精度を保つ） */
+        private static double helper1(double x) {
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+        }
+
+        /** (exp(x) - 1) / x（x が 0 付近でも精度を保つ） */
+        private static double helper2(double x) {
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+        }
     }
 
     /**
      * 利用可能な配列タイプの一覧を取得
      */
     public static ArrayType[] getAvailableTypes() {
-        return ArrayType.values();    }
+        return ArrayType.values();
+    }
 }
\ No newline at end of file
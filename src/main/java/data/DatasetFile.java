@@ -0,0 +1,271 @@
+package data;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32C;
+
+/**
+ * 生成した配列を保存・再利用するためのバイナリ形式のデータセットファイル
+ * 64 バイトのヘッダーに続けて値をリトルエンディアンの int で並べる。
+ * <pre>
+ *  0  magic "SLDS"      4  version (short)   6  予約
+ *  8  要素数 (long)     16 最小値 (int)      20 最大値 (int)
+ * 24  シード (long)     32 値部分の CRC32C (long)
+ * 40  ArrayType 名（1 バイトの長さ + UTF-8、最大 23 バイト）
+ * </pre>
+ * 読み込みはファイルをメモリマップするだけなので、大きなファイルでもすぐに開ける。
+ * 1 回のマップで扱える 2 GB 未満のファイルに対応する。
+ */
+public final class DatasetFile {
+    private static final int MAGIC = 0x53444c53; // "SLDS"（リトルエンディアン）
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int TYPE_NAME_OFFSET = 40;
+    private static final int MAX_TYPE_NAME_BYTES = HEADER_BYTES - TYPE_NAME_OFFSET - 1;
+    private static final long MAX_VALUES = (Integer.MAX_VALUE - HEADER_BYTES) / Integer.BYTES;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private final Path path;
+    private final int size;
+    private final int minValue;
+    private final int maxValue;
+    private final DataGenerator.ArrayType arrayType;
+    private final long seed;
+    private final long checksum;
+    private final ByteBuffer payload;
+    private final IntBuffer values;
+
+    private DatasetFile(Path path, int size, int minValue, int maxValue, DataGenerator.ArrayType arrayType,
+                        long seed, long checksum, ByteBuffer payload) {
+        this.path = path;
+        this.size = size;
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        this.arrayType = arrayType;
+        this.seed = seed;
+        this.checksum = checksum;
+        this.payload = payload;
+        this.values = payload.duplicate().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    /**
+     * DataGenerator で値を生成しながらファイルに書き出す（配列全体は確保しない）
+     * @return 書き出したファイルを開いたもの
+     */
+    public static DatasetFile generate(Path path, DataGenerator.ArrayType arrayType, int size,
+                                       int minInclusive, int maxInclusive, long seed) throws IOException {
+        if (size < 0) {
+            throw new IllegalArgumentException("size must be >= 0");
+        }
+        Spliterator.OfInt values = new DataGenerator(seed).spliterator(arrayType, size, minInclusive, maxInclusive);
+        write(path, values, size, arrayType, minInclusive, maxInclusive, seed);
+        return open(path);
+    }
+
+    /**
+     * 配列をファイルに書き出す（既存のファイルは上書きする）
+     * @param minInclusive 生成時の最小値
+     * @param maxInclusive 生成時の最大値
+     * @param seed 生成時のシード
+     */
+    public static void write(Path path, int[] data, DataGenerator.ArrayType arrayType,
+                             int minInclusive, int maxInclusive, long seed) throws IOException {
+        if (data == null) {
+            throw new IllegalArgumentException("data must not be null");
+        }
+        write(path, Arrays.spliterator(data), data.length, arrayType, minInclusive, maxInclusive, seed);
+    }
+
+    private static void write(Path path, Spliterator.OfInt values, long count, DataGenerator.ArrayType arrayType,
+                              int minInclusive, int maxInclusive, long seed) throws IOException {
+        if (path == null || arrayType == null) {
+            throw new IllegalArgumentException("path and arrayType must not be null");
+        }
+        if (count > MAX_VALUES) {
+            throw new IllegalArgumentException("data must have at most " + MAX_VALUES + " values");
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            // 値を先に書き、チェックサムが決まってからヘッダーを書く
+            channel.position(HEADER_BYTES);
+            ValueWriter writer = new ValueWriter(channel);
+            try {
+                values.forEachRemaining(writer);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putShort(VERSION).putShort((short) 0)
+                .putLong(count).putInt(minInclusive).putInt(maxInclusive)
+                .putLong(seed).putLong(writer.crc.getValue());
+            byte[] typeName = arrayType.name().getBytes(StandardCharsets.UTF_8);
+            if (typeName.length > MAX_TYPE_NAME_BYTES) {
+                throw new IllegalArgumentException("ArrayType name is too long: " + arrayType.name());
+            }
+            header.put((byte) typeName.length).put(typeName);
+            header.clear();
+            channel.position(0);
+            writeFully(channel, header);
+        }
+    }
+
+    /**
+     * ファイルをメモリマップして開く（値の読み込みやチェックサムの検証はしない）
+     */
+    public static DatasetFile open(Path path) throws IOException {
+        if (path == null) {
+            throw new IllegalArgumentException("path must not be null");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES) {
+                throw new IOException("Not a dataset file (too short): " + path);
+            }
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("Dataset file is larger than 2 GB: " + path);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (mapped.getInt(0) != MAGIC) {
+                throw new IOException("Not a dataset file (bad magic): " + path);
+            }
+            short version = mapped.getShort(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported dataset version " + version + ": " + path);
+            }
+            long size = mapped.getLong(8);
+            if (size < 0 || size > MAX_VALUES || HEADER_BYTES + size * Integer.BYTES != fileSize) {
+                throw new IOException("Dataset size does not match the file length: " + path);
+            }
+            int typeNameLength = mapped.get(TYPE_NAME_OFFSET) & 0xff;
+            if (typeNameLength > MAX_TYPE_NAME_BYTES) {
+                throw new IOException("Corrupt dataset header: " + path);
+            }
+            byte[] typeName = new byte[typeNameLength];
+            mapped.get(TYPE_NAME_OFFSET + 1, typeName);
+            DataGenerator.ArrayType arrayType;
+            try {
+                arrayType = DataGenerator.ArrayType.valueOf(new String(typeName, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Unknown array type in dataset header: " + path, e);
+            }
+
+            ByteBuffer payload = mapped.position(HEADER_BYTES).slice();
+            return new DatasetFile(path, (int) size, mapped.getInt(16), mapped.getInt(20), arrayType,
+                mapped.getLong(24), mapped.getLong(32), payload);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * 値をバッファに詰め、いっぱいになるたびにチェックサムを更新して書き出す
+     */
+    private static final class ValueWriter implements IntConsumer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private final IntBuffer ints = buffer.asIntBuffer();
+        private final CRC32C crc = new CRC32C();
+
+        private ValueWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void accept(int value) {
+            ints.put(value);
+            if (!ints.hasRemaining()) {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.clear().limit(ints.position() * Integer.BYTES);
+            crc.update(buffer.duplicate());
+            writeFully(channel, buffer);
+            ints.clear();
+        }
+    }
+
+    /**
+     * 値部分を読み、ヘッダーのチェックサムと一致するか確認
+     */
+    public boolean verifyChecksum() {
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        return crc.getValue() == checksum;
+    }
+
+    /**
+     * 値をヒープの配列にコピー
+     */
+    public int[] toArray() {
+        int[] data = new int[size];
+        values.duplicate().get(data);
+        return data;
+    }
+
+    /**
+     * マップされた値の読み取り専用ビュー
+     */
+    public IntBuffer getValues() {
+        return values.asReadOnlyBuffer();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMinValue() {
+        return minValue;
+    }
+
+    public int getMaxValue() {
+        return maxValue;
+    }
+
+    public DataGenerator.ArrayType getArrayType() {
+        return arrayType;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %,d values, %s, range [%d, %d], seed %d, crc32c %08x",
+            path, size, arrayType.getDisplayName(), minValue, maxValue, seed, checksum);
+    }
+}
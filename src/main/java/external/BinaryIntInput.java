@@ -0,0 +1,62 @@
+package external;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * FileChannel とダイレクトバッファによるバイナリ int ファイルの読み込み
+ */
+final class BinaryIntInput implements IntInput {
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private boolean endOfFile;
+
+    BinaryIntInput(Path path, int bufferBytes) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.buffer = ByteBuffer.allocateDirect(Math.max(Integer.BYTES, bufferBytes & ~(Integer.BYTES - 1)));
+        this.buffer.flip();
+    }
+
+    @Override
+    public int read(int[] dst, int offset, int length) throws IOException {
+        if (buffer.remaining() < Integer.BYTES && !fill()) {
+            if (buffer.hasRemaining()) {
+                throw new IOException("Truncated binary int file (trailing " + buffer.remaining() + " bytes)");
+            }
+            return -1;
+        }
+        IntBuffer ints = buffer.asIntBuffer();
+        int count = Math.min(length, ints.remaining());
+        ints.get(dst, offset, count);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return count;
+    }
+
+    /**
+     * 残りのバイトを先頭に寄せてチャネルから補充する
+     * @return 1 つ以上の int が読める状態になったら true
+     */
+    private boolean fill() throws IOException {
+        if (endOfFile) {
+            return false;
+        }
+        buffer.compact();
+        while (buffer.position() < Integer.BYTES || buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                endOfFile = true;
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer.remaining() >= Integer.BYTES;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,64 @@
+package external;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * FileChannel とダイレクトバッファによるバイナリ int ファイルの書き込み
+ */
+final class BinaryIntOutput implements IntOutput {
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final IntBuffer ints;
+
+    BinaryIntOutput(Path path, int bufferBytes) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(Math.max(Integer.BYTES, bufferBytes & ~(Integer.BYTES - 1)));
+        this.ints = buffer.asIntBuffer();
+    }
+
+    @Override
+    public void write(int[] src, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!ints.hasRemaining()) {
+                flush();
+            }
+            int count = Math.min(length, ints.remaining());
+            ints.put(src, offset, count);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    @Override
+    public void write(int value) throws IOException {
+        if (!ints.hasRemaining()) {
+            flush();
+        }
+        ints.put(value);
+    }
+
+    private void flush() throws IOException {
+        buffer.position(0);
+        buffer.limit(ints.position() * Integer.BYTES);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        ints.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
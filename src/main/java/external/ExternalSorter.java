@@ -0,0 +1,348 @@
+package external;
+
+import algorithm.OffHeapSortAlgorithm;
+import algorithm.SortAlgorithm;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * ヒープに載らない大きさの整数ファイルを整列する外部マージソート
+ * 1. 入力をメモリ予算に収まるチャンクごとに読み、SortAlgorithm で整列して一時ファイル（ラン）へ書き出す
+ * 2. ランを敗者木で k-way マージする。ラン数が多すぎる場合は複数パスに分けてマージする
+ * ランはバイナリ形式で書き、読み込みはバッファ付き NIO かメモリマップのどちらかを使う。
+ * チャンク配列・アルゴリズムの作業領域・I/O バッファはすべて 1 つのメモリ予算から割り当てる。
+ */
+public class ExternalSorter {
+    public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+    private static final long MIN_MEMORY_BUDGET = 64L << 10;
+    private static final int MIN_MERGE_BUFFER_BYTES = 64 << 10;
+    private static final int MAX_IO_BUFFER_BYTES = 8 << 20;
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private final SortAlgorithm chunkAlgorithm;
+    private final long memoryBudget;
+    private final boolean memoryMapped;
+    private Path tempDirectory;
+
+    public ExternalSorter(SortAlgorithm chunkAlgorithm) {
+        this(chunkAlgorithm, DEFAULT_MEMORY_BUDGET, false);
+    }
+
+    /**
+     * @param chunkAlgorithm チャンクの整列に使うアルゴリズム
+     * @param memoryBudget チャンク配列・アルゴリズムの作業領域・I/O バッファを合わせたバイト数
+     * @param memoryMapped ランの読み込みにメモリマップを使うか
+     */
+    public ExternalSorter(SortAlgorithm chunkAlgorithm, long memoryBudget, boolean memoryMapped) {
+        if (chunkAlgorithm == null) {
+            throw new IllegalArgumentException("chunkAlgorithm must not be null");
+        }
+        if (memoryBudget < MIN_MEMORY_BUDGET) {
+            throw new IllegalArgumentException("memoryBudget must be >= " + MIN_MEMORY_BUDGET + " bytes");
+        }
+        this.chunkAlgorithm = chunkAlgorithm;
+        this.memoryBudget = memoryBudget;
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * 一時ファイルを置くディレクトリを設定（null でシステムの既定）
+     */
+    public void setTempDirectory(Path tempDirectory) {
+        this.tempDirectory = tempDirectory;
+    }
+
+    /**
+     * input を整列して output に書き出す
+     * @return 処理結果の統計
+     */
+    public Result sort(Path input, IntFileFormat inputFormat, Path output, IntFileFormat outputFormat)
+        throws IOException {
+        if (input == null || output == null || inputFormat == null || outputFormat == null) {
+            throw new IllegalArgumentException("input, output and formats must not be null");
+        }
+        long startNanos = System.nanoTime();
+        Path workDirectory = tempDirectory == null
+            ? Files.createTempDirectory("extsort")
+            : Files.createTempDirectory(tempDirectory, "extsort");
+        List<Path> runs = new ArrayList<>();
+        try {
+            int runBufferBytes = runBufferBytes();
+            int capacity = chunkCapacity(runBufferBytes, maxValueCount(input, inputFormat));
+            long count = createRuns(input, inputFormat, workDirectory, runs, capacity, runBufferBytes);
+            int initialRuns = runs.size();
+
+            long mergeBudget = mergeBudget(capacity);
+            int fanIn = maxFanIn(mergeBudget);
+            int passes = 0;
+            int nextRunId = runs.size();
+            while (runs.size() > fanIn) {
+                // fanIn 本ずつまとめて 1 段上のランを作る
+                List<Path> nextLevel = new ArrayList<>();
+                for (int from = 0; from < runs.size(); from += fanIn) {
+                    List<Path> group = runs.subList(from, Math.min(runs.size(), from + fanIn));
+                    if (group.size() == 1) {
+                        nextLevel.add(group.get(0));
+                        continue;
+                    }
+                    Path merged = workDirectory.resolve("run-" + nextRunId++ + ".bin");
+                    try (IntOutput out = new BinaryIntOutput(merged, mergeBufferBytes(group.size(), mergeBudget))) {
+                        merge(group, out, mergeBudget);
+                    }
+                    deleteAll(group);
+                    nextLevel.add(merged);
+                }
+                runs.clear();
+                runs.addAll(nextLevel);
+                passes++;
+            }
+
+            try (IntOutput out = openOutput(output, outputFormat, mergeBufferBytes(runs.size(), mergeBudget))) {
+                merge(runs, out, mergeBudget);
+            }
+            passes++;
+
+            return new Result(count, initialRuns, passes, System.nanoTime() - startNanos);
+        } finally {
+            deleteAll(runs);
+            // 途中で失敗した場合に残った中間ランも削除する
+            try (Stream<Path> remaining = Files.list(workDirectory)) {
+                for (Path path : remaining.collect(Collectors.toList())) {
+                    Files.deleteIfExists(path);
+                }
+            }
+            Files.deleteIfExists(workDirectory);
+        }
+    }
+
+    /**
+     * 入力をチャンクごとに整列してランを書き出す
+     * @param capacity チャンク配列の要素数
+     * @param runBufferBytes ランの入出力バッファ 1 本あたりのサイズ
+     * @return 読み込んだ値の総数
+     */
+    private long createRuns(Path input, IntFileFormat format, Path workDirectory, List<Path> runs,
+                            int capacity, int runBufferBytes) throws IOException {
+        int[] chunk = new int[capacity];
+        long count = 0;
+        try (IntInput in = openInput(input, format, runBufferBytes)) {
+            while (true) {
+                int filled = 0;
+                while (filled < chunk.length) {
+                    int read = in.read(chunk, filled, chunk.length - filled);
+                    if (read < 0) {
+                        break;
+                    }
+                    filled += read;
+                }
+                if (filled == 0) {
+                    break;
+                }
+
+                if (filled == chunk.length) {
+                    chunkAlgorithm.sort(chunk);
+                } else {
+                    sortPartialChunk(chunk, filled);
+                }
+
+                Path run = workDirectory.resolve("run-" + runs.size() + ".bin");
+                try (IntOutput out = new BinaryIntOutput(run, runBufferBytes)) {
+                    out.write(chunk, 0, filled);
+                }
+                runs.add(run);
+                count += filled;
+                if (filled < chunk.length) {
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 最後の半端なチャンクを、コピーを作らずにその場で整列する
+     * OffHeapSortAlgorithm なら先頭 filled 要素だけを包んだバッファを渡し、
+     * それ以外は残りを最大値で埋めて配列全体を整列する（埋めた値は末尾に集まり、書き出さない）。
+     */
+    private void sortPartialChunk(int[] chunk, int filled) {
+        if (chunkAlgorithm instanceof OffHeapSortAlgorithm) {
+            ((OffHeapSortAlgorithm) chunkAlgorithm).sort(IntBuffer.wrap(chunk, 0, filled));
+        } else {
+            Arrays.fill(chunk, filled, chunk.length, Integer.MAX_VALUE);
+            chunkAlgorithm.sort(chunk);
+        }
+    }
+
+    private void merge(List<Path> runs, IntOutput out, long mergeBudget) throws IOException {
+        IntInput[] inputs = new IntInput[runs.size()];
+        try {
+            int bufferBytes = mergeBufferBytes(runs.size(), mergeBudget);
+            for (int i = 0; i < inputs.length; i++) {
+                inputs[i] = memoryMapped
+                    ? new MappedIntInput(runs.get(i))
+                    : new BinaryIntInput(runs.get(i), bufferBytes);
+            }
+            LoserTree tree = new LoserTree(inputs, bufferBytes / Integer.BYTES);
+            while (!tree.isEmpty()) {
+                out.write(tree.poll());
+            }
+        } finally {
+            for (IntInput in : inputs) {
+                if (in != null) {
+                    in.close();
+                }
+            }
+        }
+    }
+
+    private IntInput openInput(Path path, IntFileFormat format, int bufferBytes) throws IOException {
+        switch (format) {
+            case BINARY:
+                return memoryMapped ? new MappedIntInput(path) : new BinaryIntInput(path, bufferBytes);
+            case TEXT:
+                return new TextIntInput(path, bufferBytes);
+            default:
+                throw new IllegalArgumentException("Unknown format: " + format);
+        }
+    }
+
+    private IntOutput openOutput(Path path, IntFileFormat format, int bufferBytes) throws IOException {
+        switch (format) {
+            case BINARY:
+                return new BinaryIntOutput(path, bufferBytes);
+            case TEXT:
+                return new TextIntOutput(path, bufferBytes);
+            default:
+                throw new IllegalArgumentException("Unknown format: " + format);
+        }
+    }
+
+    /**
+     * チャンク配列の要素数
+     * 予算からランの入出力バッファ 2 本を引いた残りを、配列とアルゴリズムの作業領域で分け合う。
+     * 入力ファイルに入りうる値の数より大きくはしない。
+     */
+    private int chunkCapacity(int runBufferBytes, long maxValues) {
+        long available = memoryBudget - 2L * runBufferBytes;
+        long capacity = Math.min(Math.min(MAX_ARRAY_LENGTH, maxValues), available / Integer.BYTES);
+        while (capacity > 1) {
+            long needed = capacity * Integer.BYTES + chunkAlgorithm.getScratchBytes((int) capacity);
+            if (needed <= available) {
+                break;
+            }
+            // 作業領域はおおむね要素数に比例するので、超過した比率の分だけ縮める
+            capacity = Math.min(capacity - 1, (long) ((double) capacity * available / needed));
+        }
+        return (int) Math.max(1, capacity);
+    }
+
+    /**
+     * ファイルサイズから見た値の数の上限（テキストは 1 値につき最低でも数字と区切りの 2 文字）
+     */
+    private static long maxValueCount(Path input, IntFileFormat format) throws IOException {
+        long size = Files.size(input);
+        return format == IntFileFormat.TEXT ? (size + 1) / 2 : size / Integer.BYTES;
+    }
+
+    /**
+     * マージ段階で I/O バッファに使えるバイト数
+     * チャンク用アルゴリズムは作業領域を呼び出し間で持ち続けるので、その分を予算から除く。
+     */
+    private long mergeBudget(int chunkCapacity) {
+        return Math.max(MIN_MERGE_BUFFER_BYTES, memoryBudget - chunkAlgorithm.getScratchBytes(chunkCapacity));
+    }
+
+    /**
+     * 1 パスで同時にマージできるラン数（入力 1 本につき最低 MIN_MERGE_BUFFER_BYTES のバッファを持てる数）
+     */
+    private int maxFanIn(long mergeBudget) {
+        long buffers = mergeBudget / MIN_MERGE_BUFFER_BYTES - 1;
+        long fanIn = memoryMapped ? buffers : buffers / 2;
+        return (int) Math.max(2, Math.min(1 << 12, fanIn));
+    }
+
+    /**
+     * ラン作成時の入力・出力バッファ 1 本あたりのサイズ（予算の 1/16 ずつ）
+     */
+    private int runBufferBytes() {
+        return alignedBufferBytes(memoryBudget / 16);
+    }
+
+    /**
+     * inputs 本のランをマージするときのバッファ 1 本あたりのサイズ
+     * 入力ごとに読み込みバッファと敗者木のバッファの 2 本（メモリマップなら敗者木の分だけ）、それに出力の 1 本で予算を分け合う。
+     */
+    private int mergeBufferBytes(int inputs, long mergeBudget) {
+        long buffers = (memoryMapped ? inputs : 2L * inputs) + 1;
+        return alignedBufferBytes(mergeBudget / buffers);
+    }
+
+    private static int alignedBufferBytes(long bytes) {
+        return (int) Math.max(Integer.BYTES, Math.min(MAX_IO_BUFFER_BYTES, bytes)) & ~(Integer.BYTES - 1);
+    }
+
+    private static void deleteAll(List<Path> paths) throws IOException {
+        for (Path path : paths) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    public SortAlgorithm getChunkAlgorithm() {
+        return chunkAlgorithm;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    /**
+     * 外部ソートの処理結果
+     */
+    public static class Result {
+        private final long valueCount;
+        private final int runCount;
+        private final int mergePasses;
+        private final long elapsedNanos;
+
+        private Result(long valueCount, int runCount, int mergePasses, long elapsedNanos) {
+            this.valueCount = valueCount;
+            this.runCount = runCount;
+            this.mergePasses = mergePasses;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getValueCount() {
+            return valueCount;
+        }
+
+        public int getRunCount() {
+            return runCount;
+        }
+
+        public int getMergePasses() {
+            return mergePasses;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d values, %d runs, %d merge pass(es), %.3f s",
+                valueCount, runCount, mergePasses, elapsedNanos / 1e9);
+        }
+    }
+}
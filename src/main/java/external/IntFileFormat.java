@@ -0,0 +1,21 @@
+package external;
+
+/**
+ * 整数ファイルの形式
+ */
+public enum IntFileFormat {
+    /** 4 バイトのビッグエンディアン int の並び */
+    BINARY("Binary"),
+    /** 空白または改行区切りの 10 進整数 */
+    TEXT("Text");
+
+    private final String displayName;
+
+    IntFileFormat(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
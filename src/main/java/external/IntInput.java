@@ -0,0 +1,16 @@
+package external;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * int の列を順に読み出す入力
+ */
+interface IntInput extends Closeable {
+
+    /**
+     * 最大 length 個の値を dst[offset] から書き込む
+     * @return 読み込んだ個数。終端に達していれば -1
+     */
+    int read(int[] dst, int offset, int length) throws IOException;
+}
@@ -0,0 +1,14 @@
+package external;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * int の列を順に書き出す出力
+ */
+interface IntOutput extends Closeable {
+
+    void write(int[] src, int offset, int length) throws IOException;
+
+    void write(int value) throws IOException;
+}
@@ -0,0 +1,100 @@
+package external;
+
+import java.io.IOException;
+
+/**
+ * k 本の整列済み入力をマージする敗者木
+ * 内部節点には対戦の敗者を持ち、勝者（最小値）の入れ替えは根までの log k 回の比較で済む。
+ */
+final class LoserTree {
+    private final IntInput[] inputs;
+    private final int[][] buffers;
+    private final int[] positions;
+    private final int[] limits;
+    private final int[] keys;
+    private final boolean[] exhausted;
+    private final int[] tree;
+    private final int k;
+
+    /**
+     * @param inputs 各々が昇順に並んだ入力
+     * @param bufferInts 入力ごとの読み込みバッファの int 数
+     */
+    LoserTree(IntInput[] inputs, int bufferInts) throws IOException {
+        this.inputs = inputs;
+        this.k = inputs.length;
+        this.buffers = new int[k][Math.max(1, bufferInts)];
+        this.positions = new int[k];
+        this.limits = new int[k];
+        this.keys = new int[k];
+        this.exhausted = new boolean[k];
+        this.tree = new int[Math.max(1, k)];
+        for (int i = 0; i < k; i++) {
+            advance(i);
+        }
+        tree[0] = k == 0 ? 0 : build(1);
+    }
+
+    boolean isEmpty() {
+        return k == 0 || exhausted[tree[0]];
+    }
+
+    /**
+     * 最小値を取り出し、その入力を 1 つ進める
+     */
+    int poll() throws IOException {
+        int winner = tree[0];
+        int value = keys[winner];
+        advance(winner);
+        for (int node = (winner + k) >>> 1; node > 0; node >>>= 1) {
+            int loser = tree[node];
+            if (less(loser, winner)) {
+                tree[node] = winner;
+                winner = loser;
+            }
+        }
+        tree[0] = winner;
+        return value;
+    }
+
+    /**
+     * 節点 node を根とする部分木の勝者を返し、各節点に敗者を記録する
+     * 葉は k .. 2k-1 の位置にあるとみなす
+     */
+    private int build(int node) {
+        if (node >= k) {
+            return node - k;
+        }
+        int left = build(2 * node);
+        int right = build(2 * node + 1);
+        if (less(left, right)) {
+            tree[node] = right;
+            return left;
+        }
+        tree[node] = left;
+        return right;
+    }
+
+    private boolean less(int a, int b) {
+        if (exhausted[a]) {
+            return false;
+        }
+        if (exhausted[b]) {
+            return true;
+        }
+        return keys[a] < keys[b] || (keys[a] == keys[b] && a < b);
+    }
+
+    private void advance(int i) throws IOException {
+        if (positions[i] == limits[i]) {
+            int count = inputs[i].read(buffers[i], 0, buffers[i].length);
+            if (count <= 0) {
+                exhausted[i] = true;
+                return;
+            }
+            positions[i] = 0;
+            limits[i] = count;
+        }
+        keys[i] = buffers[i][positions[i]++];
+    }
+}
@@ -0,0 +1,46 @@
+package external;
+
+import algorithm.OffHeapSortAlgorithm;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * バイナリ int ファイルをメモリマップし、ヒープへコピーせずにその場で整列する
+ * 1 回でマップできる 2GB 未満のファイルが対象。それより大きいファイルは ExternalSorter を使う。
+ */
+public final class MappedFileSorter {
+
+    private MappedFileSorter() {
+    }
+
+    /**
+     * @param file IntFileFormat.BINARY 形式のファイル（上書きされる）
+     * @param algorithm 整列に使うアルゴリズム
+     * @return 整列した値の個数
+     */
+    public static int sort(Path file, OffHeapSortAlgorithm algorithm) throws IOException {
+        if (file == null || algorithm == null) {
+            throw new IllegalArgumentException("file and algorithm must not be null");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size % Integer.BYTES != 0) {
+                throw new IOException("Truncated binary int file: " + file);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File is too large to map at once (" + size + " bytes); use ExternalSorter");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            IntBuffer ints = mapped.order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+            algorithm.sort(ints);
+            mapped.force();
+            return ints.remaining();
+        }
+    }
+}
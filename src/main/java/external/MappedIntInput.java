@@ -0,0 +1,49 @@
+package external;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * メモリマップによるバイナリ int ファイルの読み込み
+ * 2GB を超えるファイルにも対応するため、一定サイズの窓ごとにマップする。
+ */
+final class MappedIntInput implements IntInput {
+    private static final long WINDOW_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private long mappedEnd;
+    private IntBuffer window = IntBuffer.allocate(0);
+
+    MappedIntInput(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        if (size % Integer.BYTES != 0) {
+            channel.close();
+            throw new IOException("Truncated binary int file: " + path);
+        }
+    }
+
+    @Override
+    public int read(int[] dst, int offset, int length) throws IOException {
+        if (!window.hasRemaining()) {
+            if (mappedEnd >= size) {
+                return -1;
+            }
+            long windowBytes = Math.min(WINDOW_BYTES, size - mappedEnd);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, mappedEnd, windowBytes).asIntBuffer();
+            mappedEnd += windowBytes;
+        }
+        int count = Math.min(length, window.remaining());
+        window.get(dst, offset, count);
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,71 @@
+package external;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 空白区切りの 10 進整数テキストの読み込み
+ * 1 文字ずつ解析し、Scanner や String の生成を避ける。
+ */
+final class TextIntInput implements IntInput {
+    private final InputStream in;
+
+    TextIntInput(Path path, int bufferBytes) throws IOException {
+        this.in = new BufferedInputStream(Files.newInputStream(path), Math.max(1, bufferBytes));
+    }
+
+    @Override
+    public int read(int[] dst, int offset, int length) throws IOException {
+        int count = 0;
+        while (count < length) {
+            int c = in.read();
+            while (isSeparator(c)) {
+                c = in.read();
+            }
+            if (c < 0) {
+                break;
+            }
+            boolean negative = false;
+            if (c == '-' || c == '+') {
+                negative = c == '-';
+                c = in.read();
+            }
+            if (c < '0' || c > '9') {
+                throw new IOException("Invalid integer text near character '" + (char) c + "'");
+            }
+            long value = 0;
+            while (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                if (value > (long) Integer.MAX_VALUE + 1) {
+                    throw new IOException("Integer out of range");
+                }
+                c = in.read();
+            }
+            // 数字の直後は区切り文字か終端でなければならない（"12x3" を 12 と 3 に分けない）
+            if (c >= 0 && !isSeparator(c)) {
+                throw new IOException("Invalid integer text near character '" + (char) c + "'");
+            }
+            value = negative ? -value : value;
+            if (value > Integer.MAX_VALUE) {
+                throw new IOException("Integer out of range: " + value);
+            }
+            dst[offset + count++] = (int) value;
+            if (c < 0) {
+                break;
+            }
+        }
+        return count == 0 && length > 0 ? -1 : count;
+    }
+
+    private static boolean isSeparator(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == ',';
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,43 @@
+package external;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 1 行に 1 つの 10 進整数を書き出す
+ */
+final class TextIntOutput implements IntOutput {
+    private final Writer writer;
+
+    /**
+     * @param bufferBytes バッファのバイト数（char は 2 バイトなので文字数はその半分）
+     */
+    TextIntOutput(Path path, int bufferBytes) throws IOException {
+        this.writer = new BufferedWriter(
+            new OutputStreamWriter(Files.newOutputStream(path), StandardCharsets.US_ASCII),
+            Math.max(1, bufferBytes / Character.BYTES));
+    }
+
+    @Override
+    public void write(int[] src, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            write(src[i]);
+        }
+    }
+
+    @Override
+    public void write(int value) throws IOException {
+        writer.write(Integer.toString(value));
+        writer.write('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
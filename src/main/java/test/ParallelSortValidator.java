@@ -0,0 +1,208 @@
+package test;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 巨大な配列が昇順かどうかを ForkJoinPool で並列に検査するクラス
+ * 配列をチャンクに分け、各チャンクは自分の範囲と次のチャンクとの境界の隣接ペアを調べる。
+ * check は違反が見つかった時点で、それより後ろのチャンクを打ち切る（最小の違反位置は必ず見つかる）。
+ * countInversions は全体を走査して隣接ペアの逆転数も数える。
+ */
+public class ParallelSortValidator {
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+    /** 打ち切りを確認する間隔（要素数） */
+    private static final int CHECK_INTERVAL = 4096;
+    private static final int CONTEXT_RADIUS = 3;
+    private static final int NONE = Integer.MAX_VALUE;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    public ParallelSortValidator() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param pool 検査に使うプール
+     * @param chunkSize 1 タスクが逐次に調べる要素数
+     */
+    public ParallelSortValidator(ForkJoinPool pool, int chunkSize) {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool must not be null");
+        }
+        if (chunkSize < 2) {
+            throw new IllegalArgumentException("chunkSize must be >= 2");
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 最初の違反位置を探す（見つかった時点で残りの検査を打ち切る）
+     */
+    public Result check(int[] array) {
+        return run(array, false);
+    }
+
+    /**
+     * 最初の違反位置と、隣接ペアの逆転（array[i] > array[i + 1]）の総数を求める
+     */
+    public Result countInversions(int[] array) {
+        return run(array, true);
+    }
+
+    private Result run(int[] array, boolean countAll) {
+        if (array == null) {
+            throw new IllegalArgumentException("array must not be null");
+        }
+        AtomicInteger firstViolation = new AtomicInteger(NONE);
+        // 隣接ペアは (i, i + 1) で i < length - 1
+        int pairs = Math.max(0, array.length - 1);
+        ScanTask task = new ScanTask(array, 0, pairs, firstViolation, countAll);
+        long inversions = pairs <= chunkSize ? task.compute() : pool.invoke(task);
+
+        int index = firstViolation.get();
+        if (index == NONE) {
+            return new Result(-1, null, 0, 0);
+        }
+        int contextStart = Math.max(0, index - CONTEXT_RADIUS + 1);
+        int contextEnd = Math.min(array.length, index + CONTEXT_RADIUS + 1);
+        int[] context = Arrays.copyOfRange(array, contextStart, contextEnd);
+        return new Result(index, context, contextStart, countAll ? inversions : -1);
+    }
+
+    private final class ScanTask extends RecursiveTask<Long> {
+        private final int[] array;
+        private final int from;
+        private final int to;
+        private final AtomicInteger firstViolation;
+        private final boolean countAll;
+
+        private ScanTask(int[] array, int from, int to, AtomicInteger firstViolation, boolean countAll) {
+            this.array = array;
+            this.from = from;
+            this.to = to;
+            this.firstViolation = firstViolation;
+            this.countAll = countAll;
+        }
+
+        @Override
+        protected Long compute() {
+            if (!countAll && firstViolation.get() < from) {
+                return 0L;
+            }
+            if (to - from <= chunkSize) {
+                return scan();
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask right = new ScanTask(array, mid, to, firstViolation, countAll);
+            right.fork();
+            long left = new ScanTask(array, from, mid, firstViolation, countAll).compute();
+            return left + right.join();
+        }
+
+        /**
+         * ペア (i, i + 1)、from <= i < to を調べる
+         */
+        private long scan() {
+            long inversions = 0;
+            int[] a = array;
+            for (int blockStart = from; blockStart < to; blockStart += CHECK_INTERVAL) {
+                if (!countAll && firstViolation.get() < blockStart) {
+                    return inversions;
+                }
+                int blockEnd = Math.min(to, blockStart + CHECK_INTERVAL);
+                for (int i = blockStart; i < blockEnd; i++) {
+                    if (a[i] > a[i + 1]) {
+                        if (inversions == 0) {
+                            recordViolation(i);
+                            if (!countAll) {
+                                return 1;
+                            }
+                        }
+                        inversions++;
+                    }
+                }
+            }
+            return inversions;
+        }
+
+        private void recordViolation(int index) {
+            int current = firstViolation.get();
+            while (index < current && !firstViolation.compareAndSet(current, index)) {
+                current = firstViolation.get();
+            }
+        }
+    }
+
+    /**
+     * 検査結果
+     */
+    public static class Result {
+        private final int firstViolation;
+        private final int[] context;
+        private final int contextStart;
+        private final long adjacentInversions;
+
+        private Result(int firstViolation, int[] context, int contextStart, long adjacentInversions) {
+            this.firstViolation = firstViolation;
+            this.context = context;
+            this.contextStart = contextStart;
+            this.adjacentInversions = adjacentInversions;
+        }
+
+        public boolean isSorted() {
+            return firstViolation < 0;
+        }
+
+        /**
+         * array[i] > array[i + 1] となる最小の i（昇順なら -1）
+         */
+        public int getFirstViolation() {
+            return firstViolation;
+        }
+
+        /**
+         * 違反位置の前後の値のコピー（昇順なら空）
+         */
+        public int[] getContext() {
+            return context == null ? new int[0] : context.clone();
+        }
+
+        /**
+         * getContext の先頭要素の元の配列での位置
+         */
+        public int getContextStart() {
+            return contextStart;
+        }
+
+        /**
+         * 隣接ペアの逆転数（check で打ち切った場合は -1）
+         */
+        public long getAdjacentInversions() {
+            return adjacentInversions;
+        }
+
+        @Override
+        public String toString() {
+            if (isSorted()) {
+                return "sorted";
+            }
+            StringBuilder text = new StringBuilder();
+            text.append("not sorted: array[").append(firstViolation).append("] > array[")
+                .append(firstViolation + 1).append("], around index ").append(contextStart).append(':');
+            for (int i = 0; i < context.length; i++) {
+                int index = contextStart + i;
+                boolean marked = index == firstViolation || index == firstViolation + 1;
+                text.append(' ').append(marked ? "[" : "").append(context[i]).append(marked ? "]" : "");
+            }
+            if (adjacentInversions >= 0) {
+                text.append(String.format(", %,d adjacent inversion(s)", adjacentInversions));
+            }
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package test;
+
+import algorithm.SortAlgorithm;
+import data.DataGenerator;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 性能の退行を検出するゲート
+ * 固定シードのワークロード（ArrayType × サイズ）ごとに各アルゴリズムをウォームアップしてから繰り返し計測し、
+ * 中央値と MAD（中央絶対偏差）を求める。結果はベースラインファイルに保存でき、
+ * 後の計測がベースラインの中央値を許容率以上、かつノイズ（MAD）を超えて上回ったら失敗とする。
+ * 1 サンプルは最低 MIN_SAMPLE_NANOS になるまで同じ入力のソートを繰り返した平均で、配列のコピー時間を含む。
+ */
+public class PerformanceGate {
+    public static final double DEFAULT_TOLERANCE = 0.25;
+    public static final int DEFAULT_WARMUP_RUNS = 5;
+    public static final int DEFAULT_MEASURED_RUNS = 7;
+    public static final long DEFAULT_SEED = 42;
+    private static final long MIN_SAMPLE_NANOS = 10_000_000;
+    /** 中央値の差がこの倍数の MAD を超えない場合はノイズとみなす */
+    private static final double NOISE_FACTOR = 3.0;
+    private static final String FILE_HEADER = "# algorithm\ttype\tsize\tmin\tmax\tseed\tmedianNanos\tmadNanos";
+
+    private final Supplier<SortAlgorithm[]> algorithmsFactory;
+    private final List<Workload> workloads;
+    private final int warmupRuns;
+    private final int measuredRuns;
+
+    public PerformanceGate(Supplier<SortAlgorithm[]> algorithmsFactory, List<Workload> workloads) {
+        this(algorithmsFactory, workloads, DEFAULT_WARMUP_RUNS, DEFAULT_MEASURED_RUNS);
+    }
+
+    /**
+     * @param algorithmsFactory 計測するアルゴリズム一式を生成する
+     * @param workloads 計測するワークロード
+     * @param warmupRuns 計測前に捨てるサンプル数
+     * @param measuredRuns 中央値と MAD を求めるサンプル数
+     */
+    public PerformanceGate(Supplier<SortAlgorithm[]> algorithmsFactory, List<Workload> workloads,
+                           int warmupRuns, int measuredRuns) {
+        if (algorithmsFactory == null || workloads == null) {
+            throw new IllegalArgumentException("algorithmsFactory and workloads must not be null");
+        }
+        if (warmupRuns < 0 || measuredRuns < 1) {
+            throw new IllegalArgumentException("Require warmupRuns >= 0 and measuredRuns >= 1");
+        }
+        this.algorithmsFactory = algorithmsFactory;
+        this.workloads = new ArrayList<>(workloads);
+        this.warmupRuns = warmupRuns;
+        this.measuredRuns = measuredRuns;
+    }
+
+    /**
+     * 全アルゴリズム × 全ワークロードを計測（スレッドは 1 本で順に実行する）
+     */
+    public List<Measurement> measure() {
+        SortAlgorithm[] algorithms = algorithmsFactory.get();
+        List<Measurement> measurements = new ArrayList<>();
+        for (Workload workload : workloads) {
+            int[] input = workload.generate();
+            int[] work = new int[input.length];
+            for (SortAlgorithm algorithm : algorithms) {
+                measurements.add(measure(algorithm, workload, input, work));
+            }
+        }
+        return measurements;
+    }
+
+    private Measurement measure(SortAlgorithm algorithm, Workload workload, int[] input, int[] work) {
+        // ウォームアップは計測と同じ長さのサンプルで行い、その都度 1 サンプルあたりの繰り返し回数を決め直す
+        int repetitions = 1;
+        for (int i = 0; i < warmupRuns; i++) {
+            long perRun = Math.max(1, time(algorithm, input, work, repetitions) / repetitions);
+            repetitions = (int) Math.max(1, Math.min(1 << 20, MIN_SAMPLE_NANOS / perRun));
+        }
+
+        long[] samples = new long[measuredRuns];
+        for (int i = 0; i < measuredRuns; i++) {
+            samples[i] = time(algorithm, input, work, repetitions) / repetitions;
+        }
+        long median = median(samples);
+        long[] deviations = new long[samples.length];
+        for (int i = 0; i < samples.length; i++) {
+            deviations[i] = Math.abs(samples[i] - median);
+        }
+        return new Measurement(algorithm.getName(), workload, median, median(deviations));
+    }
+
+    private static long time(SortAlgorithm algorithm, int[] input, int[] work, int repetitions) {
+        long start = System.nanoTime();
+        for (int r = 0; r < repetitions; r++) {
+            System.arraycopy(input, 0, work, 0, input.length);
+            algorithm.sort(work);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int mid = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2;
+    }
+
+    /**
+     * 計測結果をベースラインファイルに書き出す（タブ区切り、1 行 1 計測）
+     */
+    public static void saveBaselines(Path path, List<Measurement> measurements) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(FILE_HEADER);
+            writer.newLine();
+            for (Measurement m : measurements) {
+                Workload w = m.workload;
+                writer.write(String.join("\t", m.algorithmName, w.arrayType.name(), Integer.toString(w.size),
+                    Integer.toString(w.minValue), Integer.toString(w.maxValue), Long.toString(w.seed),
+                    Long.toString(m.medianNanos), Long.toString(m.madNanos)));
+                writer.newLine();
+            }
+        }
+    }
+
+    public static List<Measurement> loadBaselines(Path path) throws IOException {
+        List<Measurement> measurements = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t");
+                try {
+                    if (fields.length != 8) {
+                        throw new IllegalArgumentException("expected 8 fields");
+                    }
+                    Workload workload = new Workload(DataGenerator.ArrayType.valueOf(fields[1]),
+                        Integer.parseInt(fields[2]), Integer.parseInt(fields[3]), Integer.parseInt(fields[4]),
+                        Long.parseLong(fields[5]));
+                    measurements.add(new Measurement(fields[0], workload,
+                        Long.parseLong(fields[6]), Long.parseLong(fields[7])));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(path + ":" + lineNumber + ": invalid baseline (" + e.getMessage() + ")", e);
+                }
+            }
+        }
+        return measurements;
+    }
+
+    /**
+     * 現在の計測をベースラインと比べる
+     * @param tolerance 許容する遅くなり方（0.25 なら中央値が 25% 増えるまで許容）
+     */
+    public static Report compare(List<Measurement> baselines, List<Measurement> current, double tolerance) {
+        if (!(tolerance >= 0)) {
+            throw new IllegalArgumentException("tolerance must be >= 0");
+        }
+        Map<String, Measurement> baselineByKey = new LinkedHashMap<>();
+        for (Measurement baseline : baselines) {
+            baselineByKey.put(baseline.key(), baseline);
+        }
+        List<Comparison> comparisons = new ArrayList<>();
+        for (Measurement measurement : current) {
+            Measurement baseline = baselineByKey.get(measurement.key());
+            comparisons.add(new Comparison(baseline, measurement, tolerance));
+        }
+        return new Report(comparisons, tolerance);
+    }
+
+    /**
+     * 全 ArrayType × sizes のワークロード（値の範囲は 0..size、シードは固定）
+     */
+    public static List<Workload> defaultWorkloads(int... sizes) {
+        List<Workload> workloads = new ArrayList<>();
+        for (int size : sizes) {
+            for (DataGenerator.ArrayType type : DataGenerator.getAvailableTypes()) {
+                workloads.add(new Workload(type, size, 0, size, DEFAULT_SEED));
+            }
+        }
+        return workloads;
+    }
+
+    /**
+     * 計測する入力の定義
+     */
+    public static final class Workload {
+        private final DataGenerator.ArrayType arrayType;
+        private final int size;
+        private final int minValue;
+        private final int maxValue;
+        private final long seed;
+
+        public Workload(DataGenerator.ArrayType arrayType, int size, int minValue, int maxValue, long seed) {
+            if (arrayType == null) {
+                throw new IllegalArgumentException("arrayType must not be null");
+            }
+            if (size < 0 || minValue > maxValue) {
+                throw new IllegalArgumentException("Require size >= 0 and minValue <= maxValue");
+            }
+            this.arrayType = arrayType;
+            this.size = size;
+            this.minValue = minValue;
+            this.maxValue = maxValue;
+            this.seed = seed;
+        }
+
+        int[] generate() {
+            return new DataGenerator(seed).generateArray(arrayType, size, minValue, maxValue);
+        }
+
+        public DataGenerator.ArrayType getArrayType() {
+            return arrayType;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s, n=%,d, [%d, %d], seed %d",
+                arrayType.getDisplayName(), size, minValue, maxValue, seed);
+        }
+    }
+
+    /**
+     * 1 つのアルゴリズム × ワークロードの計測値
+     */
+    public static final class Measurement {
+        private final String algorithmName;
+        private final Workload workload;
+        private final long medianNanos;
+        private final long madNanos;
+
+        private Measurement(String algorithmName, Workload workload, long medianNanos, long madNanos) {
+            this.algorithmName = algorithmName;
+            this.workload = workload;
+            this.medianNanos = medianNanos;
+            this.madNanos = madNanos;
+        }
+
+        private String key() {
+            return algorithmName + '\t' + workload.arrayType + '\t' + workload.size + '\t'
+                + workload.minValue + '\t' + workload.maxValue + '\t' + workload.seed;
+        }
+
+        public String getAlgorithmName() {
+            return algorithmName;
+        }
+
+        public Workload getWorkload() {
+            return workload;
+        }
+
+        public long getMedianNanos() {
+            return medianNanos;
+        }
+
+        public long getMadNanos() {
+            return madNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s / %s: %s ± %s", algorithmName, workload,
+                formatNanos(medianNanos), formatNanos(madNanos));
+        }
+    }
+
+    /**
+     * ベースラインとの比較 1 件
+     */
+    public static final class Comparison {
+        private final Measurement baseline;
+        private final Measurement current;
+        private final boolean regression;
+
+        private Comparison(Measurement baseline, Measurement current, double tolerance) {
+            this.baseline = baseline;
+            this.current = current;
+            if (baseline == null) {
+                this.regression = false;
+            } else {
+                long delta = current.medianNanos - baseline.medianNanos;
+                this.regression = current.medianNanos > baseline.medianNanos * (1 + tolerance)
+                    && delta > NOISE_FACTOR * (current.madNanos + baseline.madNanos);
+            }
+        }
+
+        /**
+         * 対応するベースライン（無ければ null）
+         */
+        public Measurement getBaseline() {
+            return baseline;
+        }
+
+        public Measurement getCurrent() {
+            return current;
+        }
+
+        public boolean isRegression() {
+            return regression;
+        }
+
+        /**
+         * 中央値の変化率（0.1 で 10% 遅い。ベースラインが無ければ NaN）
+         */
+        public double getChange() {
+            if (baseline == null || baseline.medianNanos == 0) {
+                return Double.NaN;
+            }
+            return (double) current.medianNanos / baseline.medianNanos - 1;
+        }
+
+        @Override
+        public String toString() {
+            String name = current.algorithmName + " / " + current.workload;
+            if (baseline == null) {
+                return String.format("  %-8s %s: %s (no baseline)", "NEW", name, formatNanos(current.medianNanos));
+            }
+            return String.format("  %-8s %s: %s -> %s (%+.1f%%, MAD %s -> %s)",
+                regression ? "SLOWER" : "ok", name, formatNanos(baseline.medianNanos),
+                formatNanos(current.medianNanos), getChange() * 100,
+                formatNanos(baseline.madNanos), formatNanos(current.madNanos));
+        }
+    }
+
+    /**
+     * 比較結果の一覧
+     */
+    public static class Report {
+        private final List<Comparison> comparisons;
+        private final double tolerance;
+
+        private Report(List<Comparison> comparisons, double tolerance) {
+            this.comparisons = comparisons;
+            this.tolerance = tolerance;
+        }
+
+        public List<Comparison> getComparisons() {
+            return Collections.unmodifiableList(comparisons);
+        }
+
+        public List<Comparison> getRegressions() {
+            List<Comparison> regressions = new ArrayList<>();
+            for (Comparison comparison : comparisons) {
+                if (comparison.isRegression()) {
+                    regressions.add(comparison);
+                }
+            }
+            return regressions;
+        }
+
+        public boolean isPassed() {
+            return getRegressions().isEmpty();
+        }
+
+        /**
+         * 退行を先頭にまとめた差分
+         */
+        @Override
+        public String toString() {
+            List<Comparison> regressions = getRegressions();
+            StringBuilder text = new StringBuilder();
+            text.append(String.format("=== Performance Report (tolerance %.0f%%) ===%n", tolerance * 100));
+            for (Comparison comparison : regressions) {
+                text.append(comparison).append(System.lineSeparator());
+            }
+            for (Comparison comparison : comparisons) {
+                if (!comparison.isRegression()) {
+                    text.append(comparison).append(System.lineSeparator());
+                }
+            }
+            text.append(String.format("%n%s %d of %d measurement(s) regressed%n",
+                regressions.isEmpty() ? "PASS:" : "FAIL:", regressions.size(), comparisons.size()));
+            return text.toString();
+        }
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos >= 1_000_000) {
+            return String.format("%.3f ms", nanos / 1e6);
+        }
+        return String.format("%.1f us", nanos / 1e3);
+    }
+}
@@ -0,0 +1,567 @@
+package test;
+
+import algorithm.BubbleSort;
+import algorithm.OffHeapSortAlgorithm;
+import algorithm.ShakerSort;
+import algorithm.SortAlgorithm;
+import data.DataGenerator;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * すべての SortAlgorithm を Arrays.sort と突き合わせる並列の差分ファジングハーネス
+ * ケースはシードから決まる Case として作り、ArrayType・サイズ・値の範囲をランダムに選ぶ。
+ * 空配列や 1 要素、Integer.MIN_VALUE / MAX_VALUE を含む入力も一定の割合で混ぜる。
+ * 並列化や基数ソートの経路に入るよう、一部のケースは maxSize を超えて largeSize まで大きくする
+ * （二乗時間のアルゴリズムは大きなケースでは検査しない）。
+ * OffHeapSortAlgorithm はヒープ配列のスライスとダイレクトバッファの IntBuffer でも同じ入力を検査する。
+ * 失敗したケースは同じシードのままサイズを縮め、失敗が再現する最小のケースを報告する。
+ */
+public class SortFuzzer {
+    public static final int DEFAULT_MAX_SIZE = 4096;
+    public static final int DEFAULT_LARGE_SIZE = 1 << 18;
+    private static final int CASES_PER_TASK = 16;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final Supplier<SortAlgorithm[]> algorithmsFactory;
+    private final ForkJoinPool pool;
+    private final int maxSize;
+    private final int largeSize;
+
+    public SortFuzzer(Supplier<SortAlgorithm[]> algorithmsFactory) {
+        this(algorithmsFactory, ForkJoinPool.commonPool(), DEFAULT_MAX_SIZE);
+    }
+
+    public SortFuzzer(Supplier<SortAlgorithm[]> algorithmsFactory, ForkJoinPool pool, int maxSize) {
+        this(algorithmsFactory, pool, maxSize, DEFAULT_LARGE_SIZE);
+    }
+
+    /**
+     * @param algorithmsFactory ワーカースレッドごとに検査対象のアルゴリズム一式を生成する
+     * @param pool ケースを分配するプール
+     * @param maxSize 通常のケースの最大要素数
+     * @param largeSize 大きなケースの最大要素数（maxSize 以下なら大きなケースを作らない）
+     */
+    public SortFuzzer(Supplier<SortAlgorithm[]> algorithmsFactory, ForkJoinPool pool, int maxSize, int largeSize) {
+        if (algorithmsFactory == null) {
+            throw new IllegalArgumentException("algorithmsFactory must not be null");
+        }
+        if (pool == null) {
+            throw new IllegalArgumentException("pool must not be null");
+        }
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must be >= 0");
+        }
+        this.algorithmsFactory = algorithmsFactory;
+        this.pool = pool;
+        this.maxSize = maxSize;
+        this.largeSize = largeSize;
+    }
+
+    /**
+     * seed から caseCount 個のケースを作り、すべてのアルゴリズムで検査する
+     * 同じ seed・maxSize なら並列度によらず同じケースになる。
+     */
+    public Result run(long seed, int caseCount) {
+        if (caseCount < 0) {
+            throw new IllegalArgumentException("caseCount must be >= 0");
+        }
+        Run run = new Run(seed);
+        long startNanos = System.nanoTime();
+        pool.invoke(new RangeTask(run, 0, caseCount));
+        long elapsedNanos = System.nanoTime() - startNanos;
+        return new Result(caseCount, run.sorts.get(), run.failureCount.get(), run.failures(), elapsedNanos);
+    }
+
+    /**
+     * 1 つのケースを全アルゴリズムで検査し、失敗したものを縮小して返す（再現用）
+     */
+    public List<Failure> check(Case testCase) {
+        if (testCase == null) {
+            throw new IllegalArgumentException("testCase must not be null");
+        }
+        SortAlgorithm[] algorithms = algorithmsFactory.get();
+        List<Failure> failures = new ArrayList<>();
+        int[] input = testCase.generate();
+        int[] expected = input.clone();
+        Arrays.sort(expected);
+        for (SortAlgorithm algorithm : algorithms) {
+            if (!covers(algorithm, testCase)) {
+                continue;
+            }
+            if (verify(algorithm, input, expected) != null) {
+                failures.add(shrink(algorithm, testCase));
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * 二乗時間のアルゴリズムは maxSize を超える大きなケースでは検査しない
+     */
+    private boolean covers(SortAlgorithm algorithm, Case testCase) {
+        return testCase.size <= maxSize || !(algorithm instanceof BubbleSort || algorithm instanceof ShakerSort);
+    }
+
+    /**
+     * algorithm で input を整列し、期待値と違えば理由を返す（正しければ null）
+     * OffHeapSortAlgorithm は int[] に加えて IntBuffer の 2 通りでも検査する。
+     */
+    private static String verify(SortAlgorithm algorithm, int[] input, int[] expected) {
+        String reason = verifyArray(algorithm, input, expected);
+        if (reason == null && algorithm instanceof OffHeapSortAlgorithm) {
+            OffHeapSortAlgorithm offHeap = (OffHeapSortAlgorithm) algorithm;
+            reason = verifyBuffer(offHeap, input, expected, false);
+            if (reason == null) {
+                reason = verifyBuffer(offHeap, input, expected, true);
+            }
+        }
+        return reason;
+    }
+
+    private static String verifyArray(SortAlgorithm algorithm, int[] input, int[] expected) {
+        int[] actual = input.clone();
+        try {
+            algorithm.sort(actual);
+        } catch (RuntimeException | StackOverflowError e) {
+            return "threw " + e;
+        }
+        if (Arrays.equals(actual, expected)) {
+            return null;
+        }
+        TestEngine.ValidationResult validation = TestEngine.validate(input, actual);
+        if (!validation.isSorted()) {
+            return TestEngine.checkSorted(actual).toString();
+        }
+        return validation.isElementsPreserved() ? "differs from Arrays.sort" : "elements not preserved";
+    }
+
+    /**
+     * 前後に番兵を置いたバッファの [1, n + 1) を整列させ、範囲の外と position/limit が変わらないことも確かめる
+     * @param direct true ならダイレクトバッファ、false ならヒープ配列のスライス（arrayOffset が 0 でない）
+     */
+    private static String verifyBuffer(OffHeapSortAlgorithm algorithm, int[] input, int[] expected, boolean direct) {
+        String kind = direct ? "direct IntBuffer" : "heap IntBuffer slice";
+        int n = input.length;
+        IntBuffer whole = direct
+            ? ByteBuffer.allocateDirect((n + 3) * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer()
+            : IntBuffer.allocate(n + 3);
+        whole.put(0, Integer.MIN_VALUE);
+        whole.put(1, Integer.MAX_VALUE);
+        whole.put(n + 2, Integer.MIN_VALUE);
+        for (int i = 0; i < n; i++) {
+            whole.put(2 + i, input[i]);
+        }
+        whole.position(1).limit(n + 2);
+        IntBuffer target = whole.slice();
+        target.position(1);
+        try {
+            algorithm.sort(target);
+        } catch (RuntimeException | StackOverflowError e) {
+            return kind + " threw " + e;
+        }
+        if (target.position() != 1 || target.limit() != n + 1) {
+            return kind + " moved position/limit";
+        }
+        whole.clear();
+        if (whole.get(0) != Integer.MIN_VALUE || whole.get(1) != Integer.MAX_VALUE
+            || whole.get(n + 2) != Integer.MIN_VALUE) {
+            return kind + " wrote outside [position, limit)";
+        }
+        for (int i = 0; i < n; i++) {
+            if (whole.get(2 + i) != expected[i]) {
+                return kind + " differs from Arrays.sort at index " + i;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 失敗が再現する範囲でケースのサイズを二分的に縮める
+     */
+    private static Failure shrink(SortAlgorithm algorithm, Case testCase) {
+        Case smallest = testCase;
+        String reason = verify(algorithm, smallest);
+        for (int step = smallest.size / 2; step >= 1; step /= 2) {
+            while (step <= smallest.size) {
+                Case candidate = smallest.withSize(smallest.size - step);
+                String candidateReason = verify(algorithm, candidate);
+                if (candidateReason == null) {
+                    break;
+                }
+                smallest = candidate;
+                reason = candidateReason;
+            }
+        }
+        return new Failure(algorithm.getName(), testCase, smallest, reason);
+    }
+
+    private static String verify(SortAlgorithm algorithm, Case testCase) {
+        int[] input = testCase.generate();
+        int[] expected = input.clone();
+        Arrays.sort(expected);
+        return verify(algorithm, input, expected);
+    }
+
+    /**
+     * ケース番号から独立したケースのシードを作る（SplitMix64）
+     */
+    static long caseSeed(long seed, long index) {
+        long z = seed + (index + 1) * GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * 1 回の run 呼び出しの状態
+     */
+    private final class Run {
+        private final long seed;
+        private final ThreadLocal<SortAlgorithm[]> algorithms = ThreadLocal.withInitial(algorithmsFactory);
+        private final AtomicLong sorts = new AtomicLong();
+        private final AtomicLong failureCount = new AtomicLong();
+        /** アルゴリズム名ごとの、ケース番号が最小の失敗 */
+        private final Map<String, Failure> failures = new TreeMap<>();
+        private final Map<String, Long> failureIndex = new HashMap<>();
+
+        private Run(long seed) {
+            this.seed = seed;
+        }
+
+        void runCase(int index) {
+            Case testCase = Case.fromSeed(caseSeed(seed, index), maxSize, largeSize);
+            int[] input = testCase.generate();
+            int[] expected = input.clone();
+            Arrays.sort(expected);
+            SortAlgorithm[] workerAlgorithms = algorithms.get();
+            for (SortAlgorithm algorithm : workerAlgorithms) {
+                if (!covers(algorithm, testCase)) {
+                    continue;
+                }
+                String reason = verify(algorithm, input, expected);
+                sorts.incrementAndGet();
+                if (reason != null) {
+                    failureCount.incrementAndGet();
+                    record(algorithm, testCase, index);
+                }
+            }
+        }
+
+        /**
+         * アルゴリズムごとにケース番号が最小の失敗だけを縮小して残す
+         */
+        private void record(SortAlgorithm algorithm, Case testCase, long index) {
+            String name = algorithm.getName();
+            synchronized (this) {
+                Long previous = failureIndex.get(name);
+                if (previous != null && previous <= index) {
+                    return;
+                }
+                failureIndex.put(name, index);
+            }
+            // 縮小は重いのでロックの外で行い、その間により小さいケースが記録されていたら捨てる
+            Failure failure = shrink(algorithm, testCase);
+            synchronized (this) {
+                if (failureIndex.get(name) == index) {
+                    failures.put(name, failure);
+                }
+            }
+        }
+
+        synchronized List<Failure> failures() {
+            return new ArrayList<>(failures.values());
+        }
+    }
+
+    private final class RangeTask extends RecursiveAction {
+        private final Run run;
+        private final int from;
+        private final int to;
+
+        private RangeTask(Run run, int from, int to) {
+            this.run = run;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CASES_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    run.runCase(i);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(run, from, mid), new RangeTask(run, mid, to));
+        }
+    }
+
+    /**
+     * シードから決まる 1 つの入力
+     * 同じフィールドなら generate は常に同じ配列を返す。
+     */
+    public static final class Case {
+        private final long seed;
+        private final DataGenerator.ArrayType arrayType;
+        private final int size;
+        private final int minValue;
+        private final int maxValue;
+        private final boolean extremes;
+
+        /**
+         * @param seed 値の生成に使うシード
+         * @param extremes Integer.MIN_VALUE / MAX_VALUE を混ぜるか
+         */
+        public Case(long seed, DataGenerator.ArrayType arrayType, int size, int minValue, int maxValue,
+                    boolean extremes) {
+            if (arrayType == null) {
+                throw new IllegalArgumentException("arrayType must not be null");
+            }
+            if (size < 0) {
+                throw new IllegalArgumentException("size must be >= 0");
+            }
+            if (minValue > maxValue) {
+                throw new IllegalArgumentException("minValue must be <= maxValue");
+            }
+            this.seed = seed;
+            this.arrayType = arrayType;
+            this.size = size;
+            this.minValue = minValue;
+            this.maxValue = maxValue;
+            this.extremes = extremes;
+        }
+
+        /**
+         * ケースのシードから種類・サイズ・値の範囲を選ぶ
+         */
+        public static Case fromSeed(long seed, int maxSize) {
+            return fromSeed(seed, maxSize, maxSize);
+        }
+
+        /**
+         * ケースのシードから種類・サイズ・値の範囲を選ぶ
+         * largeSize が maxSize より大きければ、およそ 1/32 のケースを (maxSize, largeSize] から対数的に選ぶ。
+         */
+        public static Case fromSeed(long seed, int maxSize, int largeSize) {
+            SplittableRandom random = new SplittableRandom(seed);
+            DataGenerator.ArrayType[] types = DataGenerator.getAvailableTypes();
+            DataGenerator.ArrayType arrayType = types[random.nextInt(types.length)];
+
+            int size;
+            if (largeSize > maxSize && random.nextInt(32) == 0) {
+                // 並列化・基数ソートなどの大きな配列向けの経路に入るケース
+                double low = Math.log(maxSize + 1.0);
+                size = (int) Math.min(largeSize, Math.exp(low + random.nextDouble() * (Math.log(largeSize + 1.0) - low)));
+            } else if (random.nextInt(10) == 0) {
+                // 0, 1, 2 要素の端のケース
+                size = Math.min(maxSize, random.nextInt(3));
+            } else {
+                // サイズは対数的に一様に選ぶ
+                size = (int) Math.min(maxSize, Math.exp(random.nextDouble() * Math.log(maxSize + 1.0)));
+            }
+
+            int minValue;
+            int maxValue;
+            switch (random.nextInt(6)) {
+                case 0:
+                    minValue = 0;
+                    maxValue = 9;
+                    break;
+                case 1:
+                    minValue = Integer.MIN_VALUE;
+                    maxValue = Integer.MAX_VALUE;
+                    break;
+                case 2:
+                    minValue = Integer.MAX_VALUE - 8;
+                    maxValue = Integer.MAX_VALUE;
+                    break;
+                case 3:
+                    minValue = Integer.MIN_VALUE;
+                    maxValue = Integer.MIN_VALUE + 8;
+                    break;
+                case 4:
+                    minValue = -1000;
+                    maxValue = 1000;
+                    break;
+                default:
+                    minValue = 0;
+                    maxValue = 100;
+                    break;
+            }
+            return new Case(random.nextLong(), arrayType, size, minValue, maxValue, random.nextInt(4) == 0);
+        }
+
+        public int[] generate() {
+            SplittableRandom random = new SplittableRandom(seed);
+            int[] data = new DataGenerator(random.nextLong()).generateArray(arrayType, size, minValue, maxValue);
+            if (extremes && size > 0) {
+                int count = 1 + size / 16;
+                for (int i = 0; i < count; i++) {
+                    data[random.nextInt(size)] = random.nextBoolean() ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+                }
+            }
+            return data;
+        }
+
+        public Case withSize(int size) {
+            return new Case(seed, arrayType, size, minValue, maxValue, extremes);
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public DataGenerator.ArrayType getArrayType() {
+            return arrayType;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getMinValue() {
+            return minValue;
+        }
+
+        public int getMaxValue() {
+            return maxValue;
+        }
+
+        public boolean hasExtremes() {
+            return extremes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("seed=%d type=%s size=%d range=[%d, %d]%s",
+                seed, arrayType, size, minValue, maxValue, extremes ? " +extremes" : "");
+        }
+    }
+
+    /**
+     * アルゴリズムの失敗（元のケースと、失敗が再現する最小のケース）
+     */
+    public static class Failure {
+        private static final int MAX_PRINTED_VALUES = 32;
+
+        private final String algorithmName;
+        private final Case originalCase;
+        private final Case minimizedCase;
+        private final String reason;
+
+        private Failure(String algorithmName, Case originalCase, Case minimizedCase, String reason) {
+            this.algorithmName = algorithmName;
+            this.originalCase = originalCase;
+            this.minimizedCase = minimizedCase;
+            this.reason = reason;
+        }
+
+        public String getAlgorithmName() {
+            return algorithmName;
+        }
+
+        public Case getOriginalCase() {
+            return originalCase;
+        }
+
+        public Case getMinimizedCase() {
+            return minimizedCase;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            text.append(algorithmName).append(": ").append(reason).append('\n');
+            text.append("  minimized: ").append(minimizedCase).append('\n');
+            if (minimizedCase.size <= MAX_PRINTED_VALUES) {
+                text.append("  input: ").append(Arrays.toString(minimizedCase.generate())).append('\n');
+            }
+            text.append("  original:  ").append(originalCase);
+            return text.toString();
+        }
+    }
+
+    /**
+     * run の集計結果
+     */
+    public static class Result {
+        private final int caseCount;
+        private final long sortCount;
+        private final long failureCount;
+        private final List<Failure> failures;
+        private final long elapsedNanos;
+
+        private Result(int caseCount, long sortCount, long failureCount, List<Failure> failures,
+                       long elapsedNanos) {
+            this.caseCount = caseCount;
+            this.sortCount = sortCount;
+            this.failureCount = failureCount;
+            this.failures = failures;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getCaseCount() {
+            return caseCount;
+        }
+
+        public long getSortCount() {
+            return sortCount;
+        }
+
+        /**
+         * 失敗した (ケース, アルゴリズム) の組の数
+         */
+        public long getFailureCount() {
+            return failureCount;
+        }
+
+        /**
+         * アルゴリズムごとの最初の失敗（縮小済み）
+         */
+        public List<Failure> getFailures() {
+            return failures;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getCasesPerSecond() {
+            return elapsedNanos == 0 ? 0 : caseCount * 1e9 / elapsedNanos;
+        }
+
+        public boolean isPassed() {
+            return failureCount == 0;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(String.format(
+                "%,d cases (%,d sorts) in %.3f s: %,.0f cases/s, %,d failure(s)",
+                caseCount, sortCount, elapsedNanos / 1e9, getCasesPerSecond(), failureCount));
+            for (Failure failure : failures) {
+                text.append('\n').append(failure);
+            }
+            return text.toString();
+        }
+    }
+}
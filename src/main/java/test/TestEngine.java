@@ -1,8 +1,9 @@
 package test;
 
-import java.util.Arrays;
-
 public class TestEngine {
+    private static final int HISTOGRAM_LIMIT = 1 << 16;
+    private static final long HASH_SEED1 = 0x9e3779b97f4a7c15L;
+    private static final long HASH_SEED2 = 0xc2b2ae3d27d4eb4fL;
 
     /**
      * 配列が昇順に並んでいるかチェック
@@ -21,6 +22,13 @@ public class TestEngine {
         return true;
     }
 
+    /**
+     * 巨大な配列の昇順チェック（共通プールで並列に調べ、最初の違反位置と前後の値を返す）
+     */
+    public static ParallelSortValidator.Result checkSorted(int[] array) {
+        return new ParallelSortValidator().check(array);
+    }
+
     /**
      * ソートが正しく実行されたかを完全に検証
      * 1. 昇順に並んでいるか
@@ -36,32 +44,87 @@ public class TestEngine {
         if (original == null || sorted == null) {
             return false;
         }
+        return validate(original, sorted).isValid();
+    }
 
-        // 要素数チェック
-        if (original.length != sorted.length) {
-            return false;
+    /**
+     * 昇順・要素数・多重集合の 3 つの判定を 1 回の走査でまとめて行う
+     * 値の範囲が狭いときはヒストグラムで厳密に、広いときは順序に依存しない多重集合ハッシュで比較する。
+     * ハッシュは 2 つの独立な 64 ビット和なので、異なる多重集合を同じと判定する確率は無視できる。
+     * 配列のコピーやソートはしない。
+     */
+    public static ValidationResult validate(int[] original, int[] sorted) {
+        if (original == null || sorted == null) {
+            throw new IllegalArgumentException("original and sorted must not be null");
+        }
+        int n = sorted.length;
+        if (original.length != n) {
+            return new ValidationResult(original.length, n, isSorted(sorted), false);
+        }
+        if (n == 0) {
+            return new ValidationResult(0, 0, true, true);
         }
 
-        // 空配列は有効
-        if (original.length == 0) {
-            return true;
+        // 整列済みなら sorted の両端が値の範囲になる。範囲が狭ければヒストグラムを使う
+        int low = sorted[0];
+        long range = (long) sorted[n - 1] - low + 1;
+        int[] counts = range > 0 && range <= Math.min(n, HISTOGRAM_LIMIT) ? new int[(int) range] : null;
+        boolean histogramUsable = counts != null;
+
+        boolean ascending = true;
+        long originalHash1 = 0;
+        long originalHash2 = 0;
+        long sortedHash1 = 0;
+        long sortedHash2 = 0;
+        int previous = sorted[0];
+        for (int i = 0; i < n; i++) {
+            int a = original[i];
+            int b = sorted[i];
+            if (b < previous) {
+                ascending = false;
+            }
+            previous = b;
+
+            originalHash1 += mix(a, HASH_SEED1);
+            originalHash2 += mix(a, HASH_SEED2);
+            sortedHash1 += mix(b, HASH_SEED1);
+            sortedHash2 += mix(b, HASH_SEED2);
+
+            if (histogramUsable) {
+                long ia = (long) a - low;
+                long ib = (long) b - low;
+                if (ia < 0 || ia >= range || ib < 0 || ib >= range) {
+                    histogramUsable = false;
+                } else {
+                    counts[(int) ia]++;
+                    counts[(int) ib]--;
+                }
+            }
         }
 
-        // 昇順チェック
-        if (!isSorted(sorted)) {
-            return false;
+        boolean elementsPreserved;
+        if (histogramUsable) {
+            elementsPreserved = true;
+            for (int count : counts) {
+                if (count != 0) {
+                    elementsPreserved = false;
+                    break;
+                }
+            }
+        } else {
+            elementsPreserved = originalHash1 == sortedHash1 && originalHash2 == sortedHash2;
         }
+        return new ValidationResult(n, n, ascending, elementsPreserved);
+    }
 
-        // 中身（多重集合）が同じかチェック
-        // ソート後の配列とソート前の配列の要素を比較
-        int[] originalCopy = Arrays.copyOf(original, original.length);
-        int[] sortedCopy = Arrays.copyOf(sorted, sorted.length);
-        
-        Arrays.sort(originalCopy);
-        Arrays.sort(sortedCopy);
-        
-        // ソート済みの2つの配列を比較
-        return Arrays.equals(originalCopy, sortedCopy);
+    /**
+     * 値を 64 ビットに拡散する（SplitMix64 の最終化関数。値ごとに異なる結果を返す全単射）
+     */
+    private static long mix(int value, long seed) {
+        long z = value * seed + seed;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
     }
 
     /**
@@ -71,45 +134,92 @@ public class TestEngine {
      * @return テスト結果の詳細
      */
     public static String generateTestReport(int[] original, int[] sorted) {
-        StringBuilder report = new StringBuilder();
-        
-        report.append("=== Sort Validation Report ===\n");
-        report.append(String.format("Original array length: %d\n", 
-            original != null ? original.length : -1));
-        report.append(String.format("Sorted array length: %d\n", 
-            sorted != null ? sorted.length : -1));
-        
-        // null チェック
         if (original == null || sorted == null) {
+            StringBuilder report = new StringBuilder();
+            report.append("=== Sort Validation Report ===\n");
+            report.append(String.format("Original array length: %d\n", 
+                original != null ? original.length : -1));
+            report.append(String.format("Sorted array length: %d\n", 
+                sorted != null ? sorted.length : -1));
             report.append("❌ FAIL: Array is null\n");
             return report.toString();
         }
+        return generateTestReport(validate(original, sorted));
+    }
+
+    /**
+     * validate の結果をレポート形式で返す
+     */
+    public static String generateTestReport(ValidationResult result) {
+        StringBuilder report = new StringBuilder();
+        
+        report.append("=== Sort Validation Report ===\n");
+        report.append(String.format("Original array length: %d\n", result.getOriginalLength()));
+        report.append(String.format("Sorted array length: %d\n", result.getSortedLength()));
 
         // 要素数チェック
-        boolean lengthOk = original.length == sorted.length;
         report.append(String.format("✓ Length preserved: %s\n", 
-            lengthOk ? "YES" : "NO"));
+            result.isLengthPreserved() ? "YES" : "NO"));
 
         // 昇順チェック
-        boolean sortedOk = isSorted(sorted);
         report.append(String.format("✓ Array is sorted: %s\n", 
-            sortedOk ? "YES" : "NO"));
+            result.isSorted() ? "YES" : "NO"));
 
         // 要素保存チェック
-        if (original.length > 0) {
-            int[] originalCopy = Arrays.copyOf(original, original.length);
-            int[] sortedCopy = Arrays.copyOf(sorted, sorted.length);
-            Arrays.sort(originalCopy);
-            Arrays.sort(sortedCopy);
-            boolean elementsOk = Arrays.equals(originalCopy, sortedCopy);
+        if (result.getOriginalLength() > 0) {
             report.append(String.format("✓ Elements preserved: %s\n", 
-                elementsOk ? "YES" : "NO"));
+                result.isElementsPreserved() ? "YES" : "NO"));
         }
 
         // 最終結果
-        boolean valid = isValidSort(original, sorted);
+        boolean valid = result.isValid();
         report.append(String.format("\n%s OVERALL: %s\n", 
             valid ? "✅" : "❌", valid ? "PASS" : "FAIL"));
         
-        return report.toString();    }
-}
\ No newline at end of file
+        return report.toString();
+    }
+
+    /**
+     * validate の判定結果
+     */
+    public static class ValidationResult {
+        private final int originalLength;
+        private final int sortedLength;
+        private final boolean sorted;
+        private final boolean elementsPreserved;
+
+        private ValidationResult(int originalLength, int sortedLength, boolean sorted, boolean elementsPreserved) {
+            this.originalLength = originalLength;
+            this.sortedLength = sortedLength;
+            this.sorted = sorted;
+            this.elementsPreserved = elementsPreserved;
+        }
+
+        public int getOriginalLength() {
+            return originalLength;
+        }
+
+        public int getSortedLength() {
+            return sortedLength;
+        }
+
+        public boolean isLengthPreserved() {
+            return originalLength == sortedLength;
+        }
+
+        public boolean isSorted() {
+            return sorted;
+        }
+
+        /**
+         * 中身（多重集合）が変わっていないか（要素数が違う場合は false）
+         */
+        public boolean isElementsPreserved() {
+            return elementsPreserved;
+        }
+
+        public boolean isValid() {
+            return isLengthPreserved() && sorted && elementsPreserved;
+        }
+    }
+}
@@ -1,23 +1,72 @@
 package ui.cui;
 
+import algorithm.BatchSorter;
 import algorithm.BubbleSort;
+import algorithm.ParallelMergeSort;
 import algorithm.QuickSort;
+import algorithm.RadixSort;
 import algorithm.ShakerSort;
 import algorithm.SortAlgorithm;
+import algorithm.TimSort;
 import data.DataGenerator;
+import data.DatasetFile;
+import external.ExternalSorter;
+import external.IntFileFormat;
+import test.ParallelSortValidator;
+import test.PerformanceGate;
+import test.SortFuzzer;
 import test.TestEngine;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 
 public class CliApp {
+    /**
+     * 選択肢の番号順に並べたアルゴリズムの生成方法（1 つだけ必要なときに全部を作らずに済む）
+     */
+    private static final List<Supplier<SortAlgorithm>> ALGORITHM_FACTORIES = List.of(
+        BubbleSort::new,
+        QuickSort::new,
+        ShakerSort::new,
+        ParallelMergeSort::new,
+        RadixSort::new,
+        () -> new QuickSort(QuickSort.PivotStrategy.MEDIAN_OF_THREE, QuickSort.PartitionScheme.THREE_WAY),
+        TimSort::new
+    );
+
     public static void main(String[] args) {
+        if (args.length > 0 && "external".equals(args[0])) {
+            runExternalSort(args);
+            return;
+        }
+        if (args.length > 0 && "batch".equals(args[0])) {
+            runBatchSort(args);
+            return;
+        }
+        if (args.length > 0 && "dataset".equals(args[0])) {
+            runDataset(args);
+            return;
+        }
+        if (args.length > 0 && "fuzz".equals(args[0])) {
+            runFuzz(args);
+            return;
+        }
+        if (args.length > 0 && "perf".equals(args[0])) {
+            runPerformanceGate(args);
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
         DataGenerator dataGenerator = new DataGenerator();
 
-        SortAlgorithm[] algorithms = {
-            new BubbleSort(),
-            new QuickSort(),
-            new ShakerSort()
-        };
+        SortAlgorithm[] algorithms = createAlgorithms();
 
         while (true) {
             System.out.println("Select a sort algorithm:");
@@ -60,19 +109,447 @@ public class CliApp {
             System.out.println("\nBefore sorting (" + arrayType.getDisplayName() + "):");
             printArray(array);
 
+            long startNanos = System.nanoTime();
             selectedAlgorithm.sort(array);
+            long elapsedNanos = System.nanoTime() - startNanos;
 
             System.out.println("After sorting using " + selectedAlgorithm.getName() + ":");
             printArray(array);
+            System.out.printf("Elapsed time: %.3f ms%n", elapsedNanos / 1_000_000.0);
 
-            boolean valid = TestEngine.isValidSort(originalArray, array);
-            System.out.println("Is valid sort: " + valid);
-            System.out.println(TestEngine.generateTestReport(originalArray, array));
+            TestEngine.ValidationResult validation = TestEngine.validate(originalArray, array);
+            System.out.println("Is valid sort: " + validation.isValid());
+            System.out.println(TestEngine.generateTestReport(validation));
         }
 
         scanner.close();
     }
 
+    private static SortAlgorithm[] createAlgorithms() {
+        SortAlgorithm[] algorithms = new SortAlgorithm[ALGORITHM_FACTORIES.size()];
+        for (int i = 0; i < algorithms.length; i++) {
+            algorithms[i] = ALGORITHM_FACTORIES.get(i).get();
+        }
+        return algorithms;
+    }
+
+    /**
+     * ファイルの外部ソート
+     * {@code external <input> <output> [--in-format binary|text] [--out-format binary|text]
+     * [--memory <bytes, 例: 256m>] [--algorithm <番号>] [--mmap]}
+     */
+    private static void runExternalSort(String[] args) {
+        if (args.length < 3) {
+            printExternalUsage();
+            return;
+        }
+        Path input = Paths.get(args[1]);
+        Path output = Paths.get(args[2]);
+        IntFileFormat inputFormat = IntFileFormat.BINARY;
+        IntFileFormat outputFormat = null;
+        long memoryBudget = ExternalSorter.DEFAULT_MEMORY_BUDGET;
+        int algorithmChoice = 2;
+        boolean memoryMapped = false;
+
+        SortAlgorithm[] algorithms = createAlgorithms();
+        SortAlgorithm algorithm;
+        ExternalSorter sorter;
+        try {
+            for (int i = 3; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--in-format":
+                        inputFormat = parseFormat(args[++i]);
+                        break;
+                    case "--out-format":
+                        outputFormat = parseFormat(args[++i]);
+                        break;
+                    case "--memory":
+                        memoryBudget = parseBytes(args[++i]);
+                        break;
+                    case "--algorithm":
+                        algorithmChoice = Integer.parseInt(args[++i]);
+                        break;
+                    case "--mmap":
+                        memoryMapped = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            if (algorithmChoice < 1 || algorithmChoice > algorithms.length) {
+                throw new IllegalArgumentException("Invalid algorithm number: " + algorithmChoice);
+            }
+            algorithm = algorithms[algorithmChoice - 1];
+            // メモリ予算が小さすぎる場合もここで使い方を表示する
+            sorter = new ExternalSorter(algorithm, memoryBudget, memoryMapped);
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.out.println(e.getMessage() != null ? e.getMessage() : "Missing option value.");
+            printExternalUsage();
+            return;
+        }
+        if (outputFormat == null) {
+            outputFormat = inputFormat;
+        }
+
+        System.out.printf("External sort: %s -> %s (%s, budget %,d bytes%s)%n",
+            input, output, algorithm.getName(), memoryBudget, memoryMapped ? ", mmap" : "");
+        try {
+            ExternalSorter.Result result = sorter.sort(input, inputFormat, output, outputFormat);
+            System.out.println("Done: " + result);
+        } catch (IOException e) {
+            System.out.println("External sort failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 多数の小さな配列のバッチソート
+     * {@code batch <count> <minSize> <maxSize> [--algorithm <番号>] [--seed <シード>]}
+     */
+    private static void runBatchSort(String[] args) {
+        if (args.length < 4) {
+            printBatchUsage();
+            return;
+        }
+        int count;
+        int minSize;
+        int maxSize;
+        int algorithmChoice = 2;
+        long seed = 42;
+        try {
+            count = Integer.parseInt(args[1]);
+            minSize = Integer.parseInt(args[2]);
+            maxSize = Integer.parseInt(args[3]);
+            for (int i = 4; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--algorithm":
+                        algorithmChoice = Integer.parseInt(args[++i]);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(args[++i]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            if (count < 0 || minSize < 0 || minSize > maxSize) {
+                throw new IllegalArgumentException("Require count >= 0 and 0 <= minSize <= maxSize.");
+            }
+            if (algorithmChoice < 1 || algorithmChoice > ALGORITHM_FACTORIES.size()) {
+                throw new IllegalArgumentException("Invalid algorithm number: " + algorithmChoice);
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.out.println(e.getMessage() != null ? e.getMessage() : "Missing option value.");
+            printBatchUsage();
+            return;
+        }
+
+        DataGenerator dataGenerator = new DataGenerator(seed);
+        DataGenerator.ArrayType[] arrayTypes = DataGenerator.getAvailableTypes();
+        Random sizes = new Random(seed);
+        int[][] arrays = new int[count][];
+        for (int i = 0; i < count; i++) {
+            int size = minSize + sizes.nextInt(maxSize - minSize + 1);
+            arrays[i] = dataGenerator.generateArray(arrayTypes[i % arrayTypes.length], size);
+        }
+
+        Supplier<SortAlgorithm> factory = ALGORITHM_FACTORIES.get(algorithmChoice - 1);
+        BatchSorter sorter = new BatchSorter(factory);
+        System.out.printf("Batch sort: %,d arrays of %d..%d values (%s)%n",
+            count, minSize, maxSize, factory.get().getName());
+        BatchSorter.Result result = sorter.sort(arrays);
+        System.out.println("Done: " + result);
+
+        boolean valid = true;
+        for (int[] array : arrays) {
+            valid &= TestEngine.isSorted(array);
+        }
+        System.out.println("All arrays sorted: " + valid);
+    }
+
+    /**
+     * データセットファイルの生成・表示・整列
+     * {@code dataset generate <file> <type> <size> [--min <値>] [--max <値>] [--seed <シード>]}
+     * {@code dataset info <file> [--verify]}
+     * {@code dataset sort <file> [--algorithm <番号>]}
+     */
+    private static void runDataset(String[] args) {
+        if (args.length < 3) {
+            printDatasetUsage();
+            return;
+        }
+        Path file = Paths.get(args[2]);
+        try {
+            switch (args[1]) {
+                case "generate":
+                    generateDataset(file, args);
+                    break;
+                case "info": {
+                    DatasetFile dataset = DatasetFile.open(file);
+                    System.out.println(dataset);
+                    if (args.length > 3 && "--verify".equals(args[3])) {
+                        System.out.println("Checksum valid: " + dataset.verifyChecksum());
+                    }
+                    break;
+                }
+                case "sort":
+                    sortDataset(file, args);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown dataset command: " + args[1]);
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.out.println(e.getMessage() != null ? e.getMessage() : "Missing option value.");
+            printDatasetUsage();
+        } catch (IOException e) {
+            System.out.println("Dataset operation failed: " + e.getMessage());
+        }
+    }
+
+    private static void generateDataset(Path file, String[] args) throws IOException {
+        DataGenerator.ArrayType arrayType = DataGenerator.ArrayType.valueOf(args[3].toUpperCase(Locale.ROOT));
+        int size = Integer.parseInt(args[4]);
+        int minValue = 0;
+        int maxValue = 100;
+        long seed = 42;
+        for (int i = 5; i < args.length; i++) {
+            switch (args[i]) {
+                case "--min":
+                    minValue = Integer.parseInt(args[++i]);
+                    break;
+                case "--max":
+                    maxValue = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        long startNanos = System.nanoTime();
+        DatasetFile dataset = DatasetFile.generate(file, arrayType, size, minValue, maxValue, seed);
+        System.out.printf("Wrote %s in %.3f s%n", dataset, (System.nanoTime() - startNanos) / 1e9);
+    }
+
+    private static void sortDataset(Path file, String[] args) throws IOException {
+        int algorithmChoice = 2;
+        for (int i = 3; i < args.length; i++) {
+            if ("--algorithm".equals(args[i])) {
+                algorithmChoice = Integer.parseInt(args[++i]);
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        SortAlgorithm[] algorithms = createAlgorithms();
+        if (algorithmChoice < 1 || algorithmChoice > algorithms.length) {
+            throw new IllegalArgumentException("Invalid algorithm number: " + algorithmChoice);
+        }
+
+        DatasetFile dataset = DatasetFile.open(file);
+        System.out.println("Loaded " + dataset);
+        int[] array = dataset.toArray();
+        SortAlgorithm algorithm = algorithms[algorithmChoice - 1];
+        long startNanos = System.nanoTime();
+        algorithm.sort(array);
+        long elapsedNanos = System.nanoTime() - startNanos;
+        System.out.printf("%s: %.3f ms%n", algorithm.getName(), elapsedNanos / 1_000_000.0);
+        System.out.println("Validation: " + new ParallelSortValidator().countInversions(array));
+    }
+
+    private static void printDatasetUsage() {
+        System.out.println("Usage: dataset generate <file> <type> <size> [--min <value>] [--max <value>] [--seed <seed>]");
+        System.out.println("       dataset info <file> [--verify]");
+        System.out.println("       dataset sort <file> [--algorithm <number>]");
+        DataGenerator.ArrayType[] arrayTypes = DataGenerator.getAvailableTypes();
+        for (DataGenerator.ArrayType arrayType : arrayTypes) {
+            System.out.println("  type " + arrayType.name() + ": " + arrayType.getDisplayName());
+        }
+    }
+
+    /**
+     * 全アルゴリズムの差分ファジング
+     * {@code fuzz [--cases <件数>] [--max-size <要素数>] [--seed <シード>]}
+     */
+    private static void runFuzz(String[] args) {
+        int cases = 10_000;
+        int maxSize = SortFuzzer.DEFAULT_MAX_SIZE;
+        long seed = System.nanoTime();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--cases":
+                        cases = Integer.parseInt(args[++i]);
+                        break;
+                    case "--max-size":
+                        maxSize = Integer.parseInt(args[++i]);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(args[++i]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            if (cases < 0 || maxSize < 0) {
+                throw new IllegalArgumentException("Require cases >= 0 and max-size >= 0.");
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.out.println(e.getMessage() != null ? e.getMessage() : "Missing option value.");
+            System.out.println("Usage: fuzz [--cases <count>] [--max-size <values>] [--seed <seed>]");
+            return;
+        }
+
+        SortFuzzer fuzzer = new SortFuzzer(CliApp::createAlgorithms, ForkJoinPool.commonPool(), maxSize);
+        System.out.printf("Fuzzing %d algorithms: %,d cases up to %,d values (seed %d)%n",
+            createAlgorithms().length, cases, maxSize, seed);
+        SortFuzzer.Result result = fuzzer.run(seed, cases);
+        System.out.println(result);
+        System.out.println(result.isPassed() ? "PASS" : "FAIL");
+    }
+
+    /**
+     * 性能の計測とベースラインとの比較（退行があれば終了コード 1）
+     * {@code perf [--baseline <file>] [--save <file>] [--tolerance <割合, 例: 0.25>]
+     * [--sizes <n,n,...>] [--algorithms <番号,番号,...>] [--runs <回数>]}
+     */
+    private static void runPerformanceGate(String[] args) {
+        Path baselineFile = null;
+        Path saveFile = null;
+        double tolerance = PerformanceGate.DEFAULT_TOLERANCE;
+        int[] sizes = {1_000, 10_000};
+        int[] algorithmChoices = null;
+        int runs = PerformanceGate.DEFAULT_MEASURED_RUNS;
+        SortAlgorithm[] algorithms = createAlgorithms();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--baseline":
+                        baselineFile = Paths.get(args[++i]);
+                        break;
+                    case "--save":
+                        saveFile = Paths.get(args[++i]);
+                        break;
+                    case "--tolerance":
+                        tolerance = Double.parseDouble(args[++i]);
+                        break;
+                    case "--sizes":
+                        sizes = parseIntList(args[++i]);
+                        break;
+                    case "--algorithms":
+                        algorithmChoices = parseIntList(args[++i]);
+                        break;
+                    case "--runs":
+                        runs = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            if (algorithmChoices != null) {
+                for (int choice : algorithmChoices) {
+                    if (choice < 1 || choice > algorithms.length) {
+                        throw new IllegalArgumentException("Invalid algorithm number: " + choice);
+                    }
+                }
+            }
+            if (!(tolerance >= 0) || runs < 1) {
+                throw new IllegalArgumentException("Require tolerance >= 0 and runs >= 1.");
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.out.println(e.getMessage() != null ? e.getMessage() : "Missing option value.");
+            printPerformanceUsage();
+            return;
+        }
+
+        int[] selected = algorithmChoices;
+        Supplier<SortAlgorithm[]> factory = () -> {
+            SortAlgorithm[] all = createAlgorithms();
+            if (selected == null) {
+                return all;
+            }
+            SortAlgorithm[] chosen = new SortAlgorithm[selected.length];
+            for (int i = 0; i < selected.length; i++) {
+                chosen[i] = all[selected[i] - 1];
+            }
+            return chosen;
+        };
+        PerformanceGate gate = new PerformanceGate(factory, PerformanceGate.defaultWorkloads(sizes),
+            PerformanceGate.DEFAULT_WARMUP_RUNS, runs);
+        System.out.println("Measuring " + Arrays.toString(sizes) + " x all array types...");
+        List<PerformanceGate.Measurement> measurements = gate.measure();
+
+        try {
+            if (saveFile != null) {
+                PerformanceGate.saveBaselines(saveFile, measurements);
+                System.out.println("Saved " + measurements.size() + " baseline(s) to " + saveFile);
+            }
+            if (baselineFile == null) {
+                for (PerformanceGate.Measurement measurement : measurements) {
+                    System.out.println("  " + measurement);
+                }
+                return;
+            }
+            PerformanceGate.Report report = PerformanceGate.compare(
+                PerformanceGate.loadBaselines(baselineFile), measurements, tolerance);
+            System.out.print(report);
+            if (!report.isPassed()) {
+                System.exit(1);
+            }
+        } catch (IOException e) {
+            System.out.println("Baseline file error: " + e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    private static void printPerformanceUsage() {
+        System.out.println("Usage: perf [--baseline <file>] [--save <file>] [--tolerance <ratio, e.g. 0.25>]");
+        System.out.println("            [--sizes <n,n,...>] [--algorithms <number,number,...>] [--runs <count>]");
+    }
+
+    private static int[] parseIntList(String value) {
+        String[] parts = value.split(",");
+        int[] numbers = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            numbers[i] = Integer.parseInt(parts[i].trim());
+        }
+        return numbers;
+    }
+
+    private static void printBatchUsage() {
+        System.out.println("Usage: batch <count> <minSize> <maxSize> [--algorithm <number>] [--seed <seed>]");
+    }
+
+    private static void printExternalUsage() {
+        System.out.println("Usage: external <input> <output> [--in-format binary|text] [--out-format binary|text]");
+        System.out.println("                [--memory <bytes, e.g. 256m>] [--algorithm <number>] [--mmap]");
+        SortAlgorithm[] algorithms = createAlgorithms();
+        for (int i = 0; i < algorithms.length; i++) {
+            System.out.println("  algorithm " + (i + 1) + ": " + algorithms[i].getName());
+        }
+    }
+
+    private static IntFileFormat parseFormat(String value) {
+        return IntFileFormat.valueOf(value.toUpperCase(Locale.ROOT));
+    }
+
+    private static long parseBytes(String value) {
+        String text = value.trim().toLowerCase(Locale.ROOT);
+        if (text.isEmpty()) {
+            throw new IllegalArgumentException("Empty byte size");
+        }
+        long unit = 1;
+        char suffix = text.charAt(text.length() - 1);
+        if (suffix == 'k' || suffix == 'm' || suffix == 'g') {
+            unit = suffix == 'k' ? 1L << 10 : suffix == 'm' ? 1L << 20 : 1L << 30;
+            text = text.substring(0, text.length() - 1);
+        }
+        try {
+            return Math.multiplyExact(Long.parseLong(text), unit);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Byte size too large: " + value);
+        }
+    }
+
     private static void printArray(int[] array) {
         for (int num : array) {
             System.out.print(num + " ");
@@ -1,26 +1,32 @@
 package ui.gui;
 
+import algorithm.AbstractSortAlgorithm;
 import algorithm.BubbleSort;
+import algorithm.ParallelMergeSort;
 import algorithm.QuickSort;
+import algorithm.RadixSort;
 import algorithm.ShakerSort;
 import algorithm.SortAlgorithm;
+import algorithm.SortEventSink;
+import algorithm.TimSort;
 import data.DataGenerator;
 import test.TestEngine;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JSlider;
 import javax.swing.JSpinner;
 import javax.swing.JTextArea;
 import javax.swing.JSplitPane;
 import javax.swing.SpinnerNumberModel;
 import javax.swing.SwingUtilities;
-import javax.swing.SwingWorker;
 import javax.swing.Timer;
 import javax.swing.border.EmptyBorder;
 import java.awt.BorderLayout;
@@ -31,24 +37,33 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
+import java.awt.GridLayout;
 import java.awt.Insets;
 import java.awt.RenderingHints;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
 public class GuiApp {
     private static final int MAX_DISPLAY = 1000;
     private static final int PER_LINE = 14;
-    private static final int MAX_VISUAL_SIZE = 200;
-    private static final int DEFAULT_DELAY_MS = 40;
+    private static final int MAX_VISUAL_SIZE = 50_000;
+    /** ソートスレッドが描画より先に溜められるステップ数 */
+    private static final int CHANNEL_CAPACITY = 1 << 18;
+    private static final int FRAMES_PER_SECOND = 60;
+    private static final long FRAME_NANOS = 1_000_000_000L / FRAMES_PER_SECOND;
+    /** 1 フレームで処理するステップ数の上限（止まっていたフレームの分をまとめて進めすぎないため） */
+    private static final int MAX_STEPS_PER_FRAME = CHANNEL_CAPACITY;
+    private static final int DEFAULT_STEPS_PER_SECOND = 25;
+    private static final int MAX_STEPS_PER_SECOND = 10_000_000;
+    private static final int DEFAULT_TIMELINE_MB = 256;
 
     private final DataGenerator dataGenerator = new DataGenerator();
-    private final SortAlgorithm[] algorithms = {
-        new BubbleSort(),
-        new QuickSort(),
-        new ShakerSort()
-    };
+    private final SortAlgorithm[] algorithms = createAlgorithms();
 
     private JFrame frame;
     private JComboBox<String> algorithmCombo;
@@ -56,7 +71,8 @@ public class GuiApp {
     private JSpinner sizeSpinner;
     private JSpinner minSpinner;
     private JSpinner maxSpinner;
-    private JSpinner delaySpinner;
+    private JSpinner speedSpinner;
+    private JSpinner timelineSpinner;
     private JTextArea unsortedArea;
     private JTextArea sortedArea;
     private JLabel statusLabel;
@@ -64,16 +80,19 @@ public class GuiApp {
     private JButton generateButton;
     private JButton sortButton;
     private JButton pauseButton;
+    private JButton raceButton;
     private VisualizerPanel visualizerPanel;
+    private JSlider timelineSlider;
+    private boolean updatingSlider;
 
     private int[] currentArray;
     private int[] visualArray;
 
-    private SortPlan activePlan;
-    private List<SortStep> steps;
-    private int stepIndex;
-    private int comparisons;
-    private int swaps;
+    private SortRun activeRun;
+    private Timeline timeline;
+    private final long[] frameSteps = new long[MAX_STEPS_PER_FRAME];
+    private long lastFrameNanos;
+    private double stepCredit;
 
     private Timer animationTimer;
     private String runningStatus = "Ready.";
@@ -82,6 +101,21 @@ public class GuiApp {
         SwingUtilities.invokeLater(() -> new GuiApp().createAndShowGui());
     }
 
+    /**
+     * 実行ごとに新しいインスタンスを使う（前回のソートスレッドとイベント通知先を共有しないため）
+     */
+    private static SortAlgorithm[] createAlgorithms() {
+        return new SortAlgorithm[] {
+            new BubbleSort(),
+            new QuickSort(),
+            new ShakerSort(),
+            new ParallelMergeSort(),
+            new RadixSort(),
+            new QuickSort(QuickSort.PivotStrategy.MEDIAN_OF_THREE, QuickSort.PartitionScheme.THREE_WAY),
+            new TimSort()
+        };
+    }
+
     private void createAndShowGui() {
         frame = new JFrame("Sorting Lab");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -154,17 +188,19 @@ public class GuiApp {
         sizeSpinner = new JSpinner(new SpinnerNumberModel(40, 0, 100000, 1));
         minSpinner = new JSpinner(new SpinnerNumberModel(0, -100000, 100000, 1));
         maxSpinner = new JSpinner(new SpinnerNumberModel(100, -100000, 100000, 1));
-        delaySpinner = new JSpinner(new SpinnerNumberModel(DEFAULT_DELAY_MS, 1, 1000, 5));
-        delaySpinner.addChangeListener(event -> updateTimerDelay());
+        speedSpinner = new JSpinner(new SpinnerNumberModel(DEFAULT_STEPS_PER_SECOND, 1, MAX_STEPS_PER_SECOND, 25));
+        timelineSpinner = new JSpinner(new SpinnerNumberModel(DEFAULT_TIMELINE_MB, 16, 4096, 16));
 
         generateButton = new JButton("Generate");
         sortButton = new JButton("Visualize");
         pauseButton = new JButton("Pause");
         pauseButton.setEnabled(false);
+        raceButton = new JButton("Race...");
 
         generateButton.addActionListener(event -> generateData());
         sortButton.addActionListener(event -> startSort());
         pauseButton.addActionListener(event -> togglePause());
+        raceButton.addActionListener(event -> startRace());
 
         int row = 0;
         addControlRow(controls, gbc, row++, "Algorithm", algorithmCombo);
@@ -172,7 +208,8 @@ public class GuiApp {
         addControlRow(controls, gbc, row++, "Array size", sizeSpinner);
         addControlRow(controls, gbc, row++, "Minimum", minSpinner);
         addControlRow(controls, gbc, row++, "Maximum", maxSpinner);
-        addControlRow(controls, gbc, row++, "Delay (ms)", delaySpinner);
+        addControlRow(controls, gbc, row++, "Steps / second", speedSpinner);
+        addControlRow(controls, gbc, row++, "Timeline (MB)", timelineSpinner);
 
         gbc.gridy = row++;
         gbc.gridx = 0;
@@ -183,9 +220,12 @@ public class GuiApp {
         gbc.gridy = row++;
         controls.add(sortButton, gbc);
 
-        gbc.gridy = row;
+        gbc.gridy = row++;
         controls.add(pauseButton, gbc);
 
+        gbc.gridy = row;
+        controls.add(raceButton, gbc);
+
         return controls;
     }
 
@@ -216,6 +256,16 @@ public class GuiApp {
         visualWrapper.setBorder(BorderFactory.createTitledBorder("Visualizer"));
         visualWrapper.add(visualizerPanel, BorderLayout.CENTER);
 
+        timelineSlider = new JSlider(0, 0, 0);
+        timelineSlider.setEnabled(false);
+        timelineSlider.setBackground(new Color(246, 242, 236));
+        timelineSlider.addChangeListener(event -> {
+            if (!updatingSlider) {
+                seekTimeline(timelineSlider.getValue());
+            }
+        });
+        visualWrapper.add(timelineSlider, BorderLayout.SOUTH);
+
         unsortedArea = createDataArea();
         sortedArea = createDataArea();
 
@@ -264,7 +314,7 @@ public class GuiApp {
         JPanel statusPanel = new JPanel(new BorderLayout());
         statusPanel.setBorder(new EmptyBorder(8, 4, 4, 4));
         statusLabel = new JLabel(runningStatus);
-        metricsLabel = new JLabel("Comparisons: 0 | Swaps: 0");
+        metricsLabel = new JLabel("Comparisons: 0 | Swaps: 0 | Writes: 0");
         statusPanel.add(statusLabel, BorderLayout.WEST);
         statusPanel.add(metricsLabel, BorderLayout.EAST);
         return statusPanel;
@@ -289,10 +339,8 @@ public class GuiApp {
         sortedArea.setText("");
         visualizerPanel.setData(currentArray);
         visualizerPanel.clearHighlights();
-        steps = null;
-        comparisons = 0;
-        swaps = 0;
-        stepIndex = 0;
+        timeline = null;
+        updateTimelineSlider();
         updateMetricsLabel();
         setStatus(String.format("Generated %s array with %,d values in [%d, %d].",
             arrayType.getDisplayName(), size, min, max));
@@ -320,91 +368,220 @@ public class GuiApp {
 
         stopAnimation();
         setControlsEnabled(false);
-        pauseButton.setEnabled(false);
-        setStatus("Building visualization steps...");
-        metricsLabel.setText("Preparing steps...");
         sortedArea.setText("");
 
         int algorithmIndex = algorithmCombo.getSelectedIndex();
-        int[] workingCopy = Arrays.copyOf(currentArray, currentArray.length);
+        SortRun run = new SortRun(createAlgorithms()[algorithmIndex],
+            Arrays.copyOf(currentArray, currentArray.length));
+        activeRun = run;
+        visualArray = Arrays.copyOf(currentArray, currentArray.length);
+        timeline = new Timeline(visualArray, (Integer) timelineSpinner.getValue() * (1L << 20));
+        visualizerPanel.setData(visualArray);
+        visualizerPanel.clearHighlights();
+        updateTimelineSlider();
+        updateMetricsLabel();
+        pauseButton.setEnabled(true);
+        pauseButton.setText("Pause");
+        setStatus("Sorting with " + run.algorithm.getName() + "...");
 
-        SwingWorker<SortPlan, Void> worker = new SwingWorker<SortPlan, Void>() {
-            @Override
-            protected SortPlan doInBackground() {
-                return buildSortPlan(algorithmIndex, workingCopy);
+        // ソートはステップを流しながら別スレッドで進むので、配列の大きさによらずすぐに描画が始まる
+        run.start();
+        startAnimation();
+    }
+
+    /**
+     * 選んだアルゴリズムに同じ配列を同時に整列させ、別ウィンドウで並べて表示する
+     */
+    private void startRace() {
+        if (currentArray == null) {
+            JOptionPane.showMessageDialog(frame, "Generate an array first.", "No data",
+                JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        JPanel choices = new JPanel(new GridLayout(0, 1));
+        JCheckBox[] boxes = new JCheckBox[algorithms.length];
+        for (int i = 0; i < algorithms.length; i++) {
+            boxes[i] = new JCheckBox(algorithms[i].getName(), true);
+            choices.add(boxes[i]);
+        }
+        int choice = JOptionPane.showConfirmDialog(frame, choices, "Select algorithms to race",
+            JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (choice != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        SortAlgorithm[] fresh = createAlgorithms();
+        List<SortAlgorithm> selected = new ArrayList<>();
+        for (int i = 0; i < boxes.length; i++) {
+            if (boxes[i].isSelected()) {
+                selected.add(fresh[i]);
             }
+        }
+        if (selected.isEmpty()) {
+            return;
+        }
 
+        RacePanel racePanel = new RacePanel();
+        JFrame raceFrame = new JFrame("Sorting Lab - Race (" + currentArray.length + " values)");
+        raceFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        raceFrame.addWindowListener(new WindowAdapter() {
             @Override
-            protected void done() {
-                try {
-                    SortPlan plan = get();
-                    activePlan = plan;
-                    steps = plan.steps;
-                    stepIndex = 0;
-                    comparisons = 0;
-                    swaps = 0;
-                    visualArray = Arrays.copyOf(currentArray, currentArray.length);
-                    visualizerPanel.setData(visualArray);
-                    visualizerPanel.clearHighlights();
-                    updateMetricsLabel();
-                    pauseButton.setEnabled(true);
-                    pauseButton.setText("Pause");
-                    startAnimation();
-                } catch (Exception ex) {
-                    setControlsEnabled(true);
-                    pauseButton.setEnabled(false);
-                    metricsLabel.setText("Comparisons: 0 | Swaps: 0");
-                    setStatus("Visualization failed.");
-                    JOptionPane.showMessageDialog(frame, "Visualization failed: " + ex.getMessage(), "Error",
-                        JOptionPane.ERROR_MESSAGE);
-                }
+            public void windowClosed(WindowEvent event) {
+                racePanel.stop();
             }
-        };
-
-        worker.execute();
+        });
+        raceFrame.setContentPane(racePanel);
+        raceFrame.pack();
+        raceFrame.setLocationRelativeTo(frame);
+        raceFrame.setVisible(true);
+        racePanel.start(currentArray, selected.toArray(new SortAlgorithm[0]));
+        setStatus("Racing " + selected.size() + " algorithm(s) on " + currentArray.length + " values.");
     }
 
+    /**
+     * 一定のフレームレートで再生する。各フレームで経過時間 × 速度分のステップをまとめて適用し、
+     * 描画は変わった列をフレームの最後に 1 回だけ反映する。
+     */
     private void startAnimation() {
-        int delay = (Integer) delaySpinner.getValue();
-        animationTimer = new Timer(delay, event -> advanceStep());
+        lastFrameNanos = 0;
+        stepCredit = 0;
+        animationTimer = new Timer((int) (FRAME_NANOS / 1_000_000), event -> advanceFrame());
         animationTimer.setInitialDelay(0);
         animationTimer.start();
     }
 
-    private void advanceStep() {
-        if (steps == null || stepIndex >= steps.size()) {
+    private void advanceFrame() {
+        if (activeRun == null) {
             finishAnimation();
             return;
         }
 
-        SortStep step = steps.get(stepIndex++);
-        switch (step.type) {
+        long now = System.nanoTime();
+        long elapsed = lastFrameNanos == 0 ? FRAME_NANOS : Math.min(now - lastFrameNanos, 4 * FRAME_NANOS);
+        lastFrameNanos = now;
+        stepCredit += (Integer) speedSpinner.getValue() * (elapsed / 1e9);
+        int budget = (int) Math.min(stepCredit, MAX_STEPS_PER_FRAME);
+
+        int applied = 0;
+        long lastStep = 0;
+        // 巻き戻した位置からは記録済みのステップを再生し、記録の先頭に追いついたらチャネルから読む
+        while (applied < budget && timeline.getPosition() < timeline.getLength()) {
+            lastStep = timeline.stepForward();
+            markChanged(lastStep);
+            applied++;
+        }
+        if (applied < budget && !timeline.isTruncated()) {
+            int count = activeRun.channel.drain(frameSteps, budget - applied);
+            for (int i = 0; i < count; i++) {
+                if (!timeline.record(frameSteps[i])) {
+                    // 記録の上限に達したら、残りはソートスレッドに待たずに実行させて結果だけを表示する
+                    activeRun.channel.detach();
+                    break;
+                }
+                lastStep = frameSteps[i];
+                markChanged(lastStep);
+                applied++;
+            }
+        }
+        if (applied < budget) {
+            // ソートスレッドが追いついていない分は持ち越さない
+            stepCredit = 0;
+        } else {
+            stepCredit -= applied;
+        }
+        if (applied == 0) {
+            if (timeline.getPosition() == timeline.getLength() && activeRun.channel.isFinished()) {
+                finishAnimation();
+            }
+            return;
+        }
+
+        visualizerPanel.setPivotIndex(timeline.getPivot());
+        showStep(lastStep);
+        visualizerPanel.flush();
+        updateTimelineSlider();
+        updateMetricsLabel();
+    }
+
+    /**
+     * ステップで値が変わった列を描き直し対象にする
+     */
+    private void markChanged(long step) {
+        switch (StepChannel.type(step)) {
+            case SWAP:
+                visualizerPanel.valueChanged(StepChannel.first(step));
+                visualizerPanel.valueChanged(StepChannel.second(step));
+                break;
+            case WRITE:
+                visualizerPanel.valueChanged(StepChannel.first(step));
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * タイムラインの任意の位置へ移動する（再生中ならその位置から再生を続ける）
+     */
+    private void seekTimeline(int target) {
+        if (timeline == null || target == timeline.getPosition()) {
+            return;
+        }
+        timeline.seek(target);
+        visualizerPanel.setData(visualArray);
+        visualizerPanel.clearHighlights();
+        visualizerPanel.setPivotIndex(timeline.getPivot());
+        if (timeline.getPosition() > 0) {
+            showStep(timeline.stepAt(timeline.getPosition() - 1));
+        } else {
+            setStatus("Start of timeline.");
+        }
+        visualizerPanel.flush();
+        updateMetricsLabel();
+    }
+
+    private void updateTimelineSlider() {
+        updatingSlider = true;
+        if (timeline == null) {
+            timelineSlider.setMaximum(0);
+            timelineSlider.setValue(0);
+            timelineSlider.setEnabled(false);
+        } else {
+            timelineSlider.setMaximum(timeline.getLength());
+            timelineSlider.setValue(timeline.getPosition());
+            timelineSlider.setEnabled(timeline.getLength() > 0);
+        }
+        updatingSlider = false;
+    }
+
+    /**
+     * フレームの最後のステップを強調表示する
+     */
+    private void showStep(long step) {
+        int first = StepChannel.first(step);
+        int second = StepChannel.second(step);
+        switch (StepChannel.type(step)) {
             case COMPARE:
-                comparisons++;
-                visualizerPanel.setHighlight(step.indexA, step.indexB, StepType.COMPARE);
-                setStatus("Comparing indices " + step.indexA + " and " + step.indexB + ".");
+                visualizerPanel.setHighlight(first, second, StepType.COMPARE);
+                setStatus("Comparing indices " + first + " and " + second + ".");
                 break;
             case SWAP:
-                swaps++;
-                swap(visualArray, step.indexA, step.indexB);
-                visualizerPanel.setHighlight(step.indexA, step.indexB, StepType.SWAP);
-                setStatus("Swapping indices " + step.indexA + " and " + step.indexB + ".");
+                visualizerPanel.setHighlight(first, second, StepType.SWAP);
+                setStatus("Swapping indices " + first + " and " + second + ".");
                 break;
             case PIVOT:
-                visualizerPanel.setPivotIndex(step.indexA);
-                if (step.indexA >= 0) {
-                    setStatus("Pivot set at index " + step.indexA + ".");
+                if (first >= 0) {
+                    setStatus("Pivot set at index " + first + ".");
                 }
                 break;
-            case DONE:
-                finishAnimation();
-                return;
+            case WRITE:
+                visualizerPanel.setHighlight(first, -1, StepType.WRITE);
+                setStatus("Writing " + second + " at index " + first + ".");
+                break;
             default:
                 break;
         }
-
-        updateMetricsLabel();
-        visualizerPanel.repaint();
     }
 
     private void finishAnimation() {
@@ -418,15 +595,30 @@ public class GuiApp {
         visualizerPanel.clearHighlights();
         setControlsEnabled(true);
 
-        if (activePlan != null) {
-            sortedArea.setText(formatArray(activePlan.sortedArray));
-            setStatus(activePlan.algorithmName + " complete. Sorted: " + activePlan.sortedOk + ".");
-        } else {
+        SortRun run = activeRun;
+        activeRun = null;
+        if (run == null) {
             setStatus("Ready.");
+        } else if (run.failure != null) {
+            setStatus("Visualization failed.");
+            JOptionPane.showMessageDialog(frame, "Visualization failed: " + run.failure.getMessage(), "Error",
+                JOptionPane.ERROR_MESSAGE);
+        } else {
+            sortedArea.setText(formatArray(run.sortedArray));
+            String note = "";
+            if (timeline.isTruncated() || !Arrays.equals(visualArray, run.sortedArray)) {
+                // 記録したステップでは結果まで辿り着けないので、結果だけを表示してタイムラインは閉じる
+                if (timeline.isTruncated()) {
+                    note = String.format(" (only the first %,d steps were recorded)", timeline.getLength());
+                }
+                timeline = null;
+                visualizerPanel.setData(run.sortedArray);
+            }
+            setStatus(run.algorithm.getName() + " complete. Sorted: " + run.sortedOk + "." + note);
         }
 
+        updateTimelineSlider();
         updateMetricsLabel();
-        activePlan = null;
     }
 
     private void togglePause() {
@@ -439,55 +631,52 @@ public class GuiApp {
             pauseButton.setText("Resume");
             statusLabel.setText("Paused.");
         } else {
+            lastFrameNanos = 0;
             animationTimer.start();
             pauseButton.setText("Pause");
             statusLabel.setText(runningStatus);
         }
     }
 
-    private void updateTimerDelay() {
-        if (animationTimer != null) {
-            animationTimer.setDelay((Integer) delaySpinner.getValue());
-        }
-    }
-
     private void stopAnimation() {
         if (animationTimer != null) {
             animationTimer.stop();
             animationTimer = null;
         }
-        activePlan = null;
-        steps = null;
-        stepIndex = 0;
-        comparisons = 0;
-        swaps = 0;
+        if (activeRun != null) {
+            activeRun.cancel();
+            activeRun = null;
+        }
+        timeline = null;
         pauseButton.setEnabled(false);
         pauseButton.setText("Pause");
         if (visualizerPanel != null) {
             visualizerPanel.clearHighlights();
+            updateTimelineSlider();
         }
     }
 
     private void setControlsEnabled(boolean enabled) {
         generateButton.setEnabled(enabled);
         sortButton.setEnabled(enabled);
+        raceButton.setEnabled(enabled);
         algorithmCombo.setEnabled(enabled);
         arrayTypeCombo.setEnabled(enabled);
         sizeSpinner.setEnabled(enabled);
         minSpinner.setEnabled(enabled);
         maxSpinner.setEnabled(enabled);
-        delaySpinner.setEnabled(enabled);
+        timelineSpinner.setEnabled(enabled);
     }
 
     private void updateMetricsLabel() {
-        if (steps == null || steps.isEmpty()) {
-            metricsLabel.setText("Comparisons: " + comparisons + " | Swaps: " + swaps);
+        if (timeline == null) {
+            metricsLabel.setText("Comparisons: 0 | Swaps: 0 | Writes: 0");
             return;
         }
-        int totalSteps = steps.size();
-        int currentStep = Math.min(stepIndex, totalSteps);
-        metricsLabel.setText("Step " + currentStep + "/" + totalSteps +
-            " | Comparisons: " + comparisons + " | Swaps: " + swaps);
+        String counts = "Comparisons: " + timeline.getComparisons() + " | Swaps: " + timeline.getSwaps()
+            + " | Writes: " + timeline.getWrites();
+        metricsLabel.setText(timeline.getLength() == 0 ? counts
+            : "Step " + timeline.getPosition() + "/" + timeline.getLength() + " | " + counts);
     }
 
     private void setStatus(String message) {
@@ -495,111 +684,7 @@ public class GuiApp {
         statusLabel.setText(message);
     }
 
-    private SortPlan buildSortPlan(int algorithmIndex, int[] data) {
-        List<SortStep> planSteps = new ArrayList<>();
-        switch (algorithmIndex) {
-            case 0:
-                bubbleSortSteps(data, planSteps);
-                break;
-            case 1:
-                quickSortSteps(data, 0, data.length - 1, planSteps);
-                break;
-            case 2:
-                shakerSortSteps(data, planSteps);
-                break;
-            default:
-                bubbleSortSteps(data, planSteps);
-                break;
-        }
-        planSteps.add(SortStep.done());
-        boolean sortedOk = TestEngine.isSorted(data);
-        return new SortPlan(algorithms[algorithmIndex].getName(), planSteps, data, sortedOk);
-    }
-
-    private void bubbleSortSteps(int[] data, List<SortStep> planSteps) {
-        int n = data.length;
-        for (int i = 0; i < n - 1; i++) {
-            boolean swapped = false;
-            for (int j = 0; j < n - i - 1; j++) {
-                planSteps.add(SortStep.compare(j, j + 1));
-                if (data[j] > data[j + 1]) {
-                    swap(data, j, j + 1);
-                    planSteps.add(SortStep.swap(j, j + 1));
-                    swapped = true;
-                }
-            }
-            if (!swapped) {
-                break;
-            }
-        }
-    }
-
-    private void shakerSortSteps(int[] data, List<SortStep> planSteps) {
-        int left = 0;
-        int right = data.length - 1;
-        boolean swapped;
-
-        while (left < right) {
-            swapped = false;
-            for (int i = left; i < right; i++) {
-                planSteps.add(SortStep.compare(i, i + 1));
-                if (data[i] > data[i + 1]) {
-                    swap(data, i, i + 1);
-                    planSteps.add(SortStep.swap(i, i + 1));
-                    swapped = true;
-                }
-            }
-            right--;
-            if (!swapped) {
-                break;
-            }
-            swapped = false;
-            for (int i = right; i > left; i--) {
-                planSteps.add(SortStep.compare(i - 1, i));
-                if (data[i] < data[i - 1]) {
-                    swap(data, i, i - 1);
-                    planSteps.add(SortStep.swap(i - 1, i));
-                    swapped = true;
-                }
-            }
-            left++;
-            if (!swapped) {
-                break;
-            }
-        }
-    }
-
-    private void quickSortSteps(int[] data, int low, int high, List<SortStep> planSteps) {
-        if (low < high) {
-            int pivotIndex = partitionSteps(data, low, high, planSteps);
-            planSteps.add(SortStep.pivot(-1));
-            quickSortSteps(data, low, pivotIndex - 1, planSteps);
-            quickSortSteps(data, pivotIndex + 1, high, planSteps);
-        }
-    }
-
-    private int partitionSteps(int[] data, int low, int high, List<SortStep> planSteps) {
-        int pivot = data[high];
-        planSteps.add(SortStep.pivot(high));
-        int i = low - 1;
-        for (int j = low; j < high; j++) {
-            planSteps.add(SortStep.compare(j, high));
-            if (data[j] <= pivot) {
-                i++;
-                if (i != j) {
-                    swap(data, i, j);
-                    planSteps.add(SortStep.swap(i, j));
-                }
-            }
-        }
-        if (i + 1 != high) {
-            swap(data, i + 1, high);
-            planSteps.add(SortStep.swap(i + 1, high));
-        }
-        return i + 1;
-    }
-
-    private void swap(int[] data, int i, int j) {
+    private static void swap(int[] data, int i, int j) {
         int temp = data[i];
         data[i] = data[j];
         data[j] = temp;
@@ -639,51 +724,437 @@ public class GuiApp {
         COMPARE,
         SWAP,
         PIVOT,
-        DONE
+        WRITE
     }
 
-    private static class SortStep {
-        private final StepType type;
-        private final int indexA;
-        private final int indexB;
+    /**
+     * ソートスレッドから EDT へステップを渡す容量固定のチャネル
+     * ステップは 8 バイトの long に詰める。上位 4 ビットに種類、続く 28 ビットに 1 つ目の添字（+1 して -1 を 0 で表す）、
+     * 下位 32 ビットに 2 つ目の添字（WRITE では書き込んだ値）をそのまま入れる。
+     * バッファが満杯になるとソートスレッドは空くまで待つので、一時停止中にソートだけが先に進むことはない。
+     */
+    private static final class StepChannel {
+        private static final int TYPE_SHIFT = 60;
+        private static final int FIRST_SHIFT = 32;
+        private static final long FIRST_MASK = (1L << (TYPE_SHIFT - FIRST_SHIFT)) - 1;
+        private static final int MAX_INDEX = (int) FIRST_MASK - 1;
+        private static final StepType[] TYPES = StepType.values();
+
+        private final long[] buffer;
+        private int head;
+        private int size;
+        private boolean closed;
+        private boolean cancelled;
+        private boolean detached;
+
+        private StepChannel(int capacity) {
+            this.buffer = new long[capacity];
+        }
 
-        private SortStep(StepType type, int indexA, int indexB) {
-            this.type = type;
-            this.indexA = indexA;
-            this.indexB = indexB;
+        /**
+         * ステップを追加（満杯なら空くまで待つ。cancel 後は CancellationException）
+         */
+        private synchronized void put(StepType type, int first, int second) {
+            if (detached) {
+                return;
+            }
+            long step = encode(type, first, second);
+            while (size == buffer.length && !cancelled && !detached) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cancelled = true;
+                }
+            }
+            if (cancelled) {
+                throw new CancellationException("visualization cancelled");
+            }
+            if (detached) {
+                return;
+            }
+            buffer[(head + size) % buffer.length] = step;
+            size++;
+        }
+
+        /**
+         * 先頭から最大 max 個のステップを dst に取り出す（待たない）
+         * @return 取り出した個数
+         */
+        private synchronized int drain(long[] dst, int max) {
+            int count = Math.min(max, size);
+            int firstPart = Math.min(count, buffer.length - head);
+            System.arraycopy(buffer, head, dst, 0, firstPart);
+            System.arraycopy(buffer, 0, dst, firstPart, count - firstPart);
+            head = (head + count) % buffer.length;
+            size -= count;
+            if (count > 0) {
+                notifyAll();
+            }
+            return count;
         }
 
-        private static SortStep compare(int indexA, int indexB) {
-            return new SortStep(StepType.COMPARE, indexA, indexB);
+        /**
+         * これ以上ステップが追加されないことを示す
+         */
+        private synchronized void close() {
+            closed = true;
         }
 
-        private static SortStep swap(int indexA, int indexB) {
-            return new SortStep(StepType.SWAP, indexA, indexB);
+        /**
+         * close 済みで、すべてのステップを取り出した（detach 後は残りを捨てる）
+         */
+        private synchronized boolean isFinished() {
+            return closed && (size == 0 || detached);
         }
 
-        private static SortStep pivot(int index) {
-            return new SortStep(StepType.PIVOT, index, -1);
+        /**
+         * 以降のステップを捨て、ソートスレッドを待たせずに最後まで実行させる
+         */
+        private synchronized void detach() {
+            detached = true;
+            notifyAll();
         }
 
-        private static SortStep done() {
-            return new SortStep(StepType.DONE, -1, -1);
+        /**
+         * 待っているソートスレッドを起こして中断させる
+         */
+        private synchronized void cancel() {
+            cancelled = true;
+            notifyAll();
+        }
+
+        private static long encode(StepType type, int first, int second) {
+            if (first > MAX_INDEX) {
+                throw new IllegalArgumentException("index is too large to record: " + first);
+            }
+            return (long) type.ordinal() << TYPE_SHIFT
+                | (long) (first + 1) << FIRST_SHIFT
+                | (second & 0xffffffffL);
+        }
+
+        private static StepType type(long step) {
+            return TYPES[(int) (step >>> TYPE_SHIFT)];
+        }
+
+        private static int first(long step) {
+            return (int) ((step >>> FIRST_SHIFT) & FIRST_MASK) - 1;
+        }
+
+        private static int second(long step) {
+            return (int) step;
         }
     }
 
-    private static class SortPlan {
-        private final String algorithmName;
-        private final List<SortStep> steps;
-        private final int[] sortedArray;
-        private final boolean sortedOk;
+    /**
+     * 再生したステップを記録し、任意の位置へ移動できるタイムライン
+     * 一定間隔で配列のスナップショット（キーフレーム）を取り、移動先の手前のキーフレームから再生する。
+     * 交換は同じ交換で、書き込みは記録しておいた元の値で戻せるので、1 ステップ戻るのは O(1)。
+     * ステップの記録とキーフレームはそれぞれメモリ予算の半分まで使う。
+     * キーフレームの間隔は配列の長さ以上にして、スナップショットのコピーをステップあたり O(1) に抑える。
+     */
+    private static final class Timeline {
+        private static final int SEGMENT_BITS = 16;
+        private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+        /** 1 ステップの記録にかかるバイト数（ステップ 8 + 書き込み前の値 最大 4） */
+        private static final int BYTES_PER_STEP = 12;
+        private static final int MIN_INTERVAL = 64;
+
+        private final int[] array;
+        private final int maxSteps;
+        private long[][] steps = new long[16][];
+        private int[][] oldValues = new int[16][];
+        private int length;
+        private boolean truncated;
+
+        // 現在位置での状態
+        private int position;
+        private int comparisons;
+        private int swaps;
+        private int writes;
+        private int pivot = -1;
+
+        // キーフレーム k は位置 k * interval の配列と {comparisons, swaps, writes, pivot}
+        private final int interval;
+        private final int[][] keyframes;
+        private final int[][] keyframeCounters;
+        private int keyframeCount;
+
+        /**
+         * @param array 表示する配列（タイムラインの移動に合わせて書き換える）
+         * @param memoryBudgetBytes 記録とキーフレームに使うメモリの上限
+         */
+        private Timeline(int[] array, long memoryBudgetBytes) {
+            this.array = array;
+            long half = memoryBudgetBytes / 2;
+            this.maxSteps = (int) Math.min(Integer.MAX_VALUE - 1, half / BYTES_PER_STEP);
+            long maxKeyframes = Math.max(1, half / (array.length * 4L + 16));
+            this.interval = (int) Math.max(Math.max(MIN_INTERVAL, array.length),
+                (maxSteps + maxKeyframes - 1) / maxKeyframes);
+            int keyframeSlots = maxSteps / interval + 1;
+            this.keyframes = new int[keyframeSlots][];
+            this.keyframeCounters = new int[keyframeSlots][];
+            addKeyframe();
+        }
+
+        /**
+         * 記録の末尾にステップを追加して適用する（現在位置が末尾のときだけ呼べる）
+         * @return 上限に達して記録できなかったら false
+         */
+        private boolean record(long step) {
+            if (position != length) {
+                throw new IllegalStateException("can only record at the end of the timeline");
+            }
+            if (length >= maxSteps) {
+                truncated = true;
+                return false;
+            }
+            int first = StepChannel.first(step);
+            switch (StepChannel.type(step)) {
+                case PIVOT:
+                    // 戻すときのために直前のピボットを入れておく
+                    step = StepChannel.encode(StepType.PIVOT, first, pivot);
+                    break;
+                case WRITE:
+                    setOldValue(writes, array[first]);
+                    break;
+                default:
+                    break;
+            }
+            int segment = length >>> SEGMENT_BITS;
+            if (segment == steps.length) {
+                steps = Arrays.copyOf(steps, segment * 2);
+            }
+            if (steps[segment] == null) {
+                steps[segment] = new long[SEGMENT_SIZE];
+            }
+            steps[segment][length & (SEGMENT_SIZE - 1)] = step;
+            length++;
+            stepForward();
+
+            if (length % interval == 0) {
+                addKeyframe();
+            }
+            return true;
+        }
+
+        /**
+         * 記録済みのステップを 1 つ進める
+         * @return 適用したステップ
+         */
+        private long stepForward() {
+            long step = stepAt(position);
+            int first = StepChannel.first(step);
+            int second = StepChannel.second(step);
+            switch (StepChannel.type(step)) {
+                case COMPARE:
+                    comparisons++;
+                    break;
+                case SWAP:
+                    swap(array, first, second);
+                    swaps++;
+                    break;
+                case PIVOT:
+                    pivot = first;
+                    break;
+                case WRITE:
+                    array[first] = second;
+                    writes++;
+                    break;
+                default:
+                    break;
+            }
+            position++;
+            return step;
+        }
+
+        /**
+         * 1 ステップ戻る
+         */
+        private void stepBackward() {
+            position--;
+            long step = stepAt(position);
+            int first = StepChannel.first(step);
+            int second = StepChannel.second(step);
+            switch (StepChannel.type(step)) {
+                case COMPARE:
+                    comparisons--;
+                    break;
+                case SWAP:
+                    swap(array, first, second);
+                    swaps--;
+                    break;
+                case PIVOT:
+                    pivot = second;
+                    break;
+                case WRITE:
+                    writes--;
+                    array[first] = oldValues[writes >>> SEGMENT_BITS][writes & (SEGMENT_SIZE - 1)];
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * target の位置へ移動する
+         * 今の位置から進む・戻る・手前のキーフレームから進むのうち、ステップ数が最も少ない方法を選ぶ。
+         */
+        private void seek(int target) {
+            target = Math.max(0, Math.min(length, target));
+            int keyframe = Math.min(target / interval, keyframeCount - 1);
+            int fromKeyframe = target - keyframe * interval;
+            int fromHere = Math.abs(target - position);
+            if (fromKeyframe < fromHere) {
+                System.arraycopy(keyframes[keyframe], 0, array, 0, array.length);
+                int[] counters = keyframeCounters[keyframe];
+                comparisons = counters[0];
+                swaps = counters[1];
+                writes = counters[2];
+                pivot = counters[3];
+                position = keyframe * interval;
+            }
+            while (position < target) {
+                stepForward();
+            }
+            while (position > target) {
+                stepBackward();
+            }
+        }
+
+        private long stepAt(int index) {
+            return steps[index >>> SEGMENT_BITS][index & (SEGMENT_SIZE - 1)];
+        }
+
+        private void setOldValue(int index, int value) {
+            int segment = index >>> SEGMENT_BITS;
+            if (segment == oldValues.length) {
+                oldValues = Arrays.copyOf(oldValues, segment * 2);
+            }
+            if (oldValues[segment] == null) {
+                oldValues[segment] = new int[SEGMENT_SIZE];
+            }
+            oldValues[segment][index & (SEGMENT_SIZE - 1)] = value;
+        }
+
+        private void addKeyframe() {
+            keyframes[keyframeCount] = Arrays.copyOf(array, array.length);
+            keyframeCounters[keyframeCount] = new int[] {comparisons, swaps, writes, pivot};
+            keyframeCount++;
+        }
+
+        private int getPosition() {
+            return position;
+        }
+
+        private int getLength() {
+            return length;
+        }
+
+        /**
+         * 記録の上限に達し、それ以降のステップを捨てた
+         */
+        private boolean isTruncated() {
+            return truncated;
+        }
+
+        private int getComparisons() {
+            return comparisons;
+        }
 
-        private SortPlan(String algorithmName, List<SortStep> steps, int[] sortedArray, boolean sortedOk) {
-            this.algorithmName = algorithmName;
-            this.steps = steps;
-            this.sortedArray = sortedArray;
-            this.sortedOk = sortedOk;
+        private int getSwaps() {
+            return swaps;
+        }
+
+        private int getWrites() {
+            return writes;
+        }
+
+        private int getPivot() {
+            return pivot;
         }
     }
 
+    /**
+     * 1 回の可視化。アルゴリズムを別スレッドで実行し、通知されたイベントを StepChannel に流す
+     * 通知を出さないアルゴリズム（並列ソートなど）はステップなしで結果だけを表示する。
+     */
+    private static final class SortRun {
+        private final SortAlgorithm algorithm;
+        private final int[] data;
+        private final StepChannel channel = new StepChannel(CHANNEL_CAPACITY);
+        private final Thread thread;
+        // 以下はソートスレッドが channel.close() の前に書き、EDT は isFinished() の後に読む
+        private int[] sortedArray;
+        private boolean sortedOk;
+        private Throwable failure;
+
+        private SortRun(SortAlgorithm algorithm, int[] data) {
+            this.algorithm = algorithm;
+            this.data = data;
+            this.thread = new Thread(this::sort, "sort-visualizer");
+            this.thread.setDaemon(true);
+        }
+
+        private void start() {
+            thread.start();
+        }
+
+        private void cancel() {
+            channel.cancel();
+            thread.interrupt();
+        }
+
+        private void sort() {
+            AbstractSortAlgorithm notifying = algorithm instanceof AbstractSortAlgorithm
+                ? (AbstractSortAlgorithm) algorithm
+                : null;
+            if (notifying != null) {
+                notifying.setEventSink(new SortEventSink() {
+                    @Override
+                    public void onCompare(int i, int j) {
+                        channel.put(StepType.COMPARE, i, j);
+                    }
+
+                    @Override
+                    public void onSwap(int i, int j) {
+                        channel.put(StepType.SWAP, i, j);
+                    }
+
+                    @Override
+                    public void onPivot(int index) {
+                        channel.put(StepType.PIVOT, index, -1);
+                    }
+
+                    @Override
+                    public void onWrite(int index, int value) {
+                        channel.put(StepType.WRITE, index, value);
+                    }
+                });
+            }
+            try {
+                algorithm.sort(data);
+                sortedArray = data;
+                sortedOk = TestEngine.isSorted(data);
+            } catch (CancellationException e) {
+                return;
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                if (notifying != null) {
+                    notifying.setEventSink(null);
+                }
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * 棒グラフを BufferedImage にキャッシュして描画するパネル
+     * 変わった添字の列を記録しておき、flush でその列だけをキャッシュに描き直して repaint する。
+     * 最小値・最大値は setData で一度だけ求め、書き込みで範囲が広がったときだけ全体を描き直す。
+     * 幅に収まらない要素数では 1 ピクセル列に複数の要素をまとめ、その中で最大の値を描く。
+     */
     private static class VisualizerPanel extends JPanel {
         private static final Color BASE_COLOR = new Color(78, 154, 131);
         private static final Color COMPARE_COLOR = new Color(233, 163, 79);
@@ -691,13 +1162,30 @@ public class GuiApp {
         private static final Color PIVOT_COLOR = new Color(90, 120, 200);
         private static final Color FRAME_COLOR = new Color(224, 220, 214);
         private static final Color TEXT_COLOR = new Color(110, 110, 110);
+        private static final int PADDING = 12;
 
         private int[] data;
+        private int minValue;
+        private int maxValue;
         private int highlightA = -1;
         private int highlightB = -1;
         private int pivotIndex = -1;
         private StepType highlightType = StepType.COMPARE;
 
+        private BufferedImage canvas;
+        private Graphics2D canvasGraphics;
+        private boolean canvasValid;
+        // renderAll で決まるレイアウト
+        private int slotCount;
+        private int barWidth;
+        private int gap;
+        private int startX;
+        private int plotHeight;
+        // flush で描き直す列
+        private boolean[] slotDirty = new boolean[0];
+        private int[] dirtySlots = new int[0];
+        private int dirtyCount;
+
         private VisualizerPanel() {
             setBackground(new Color(253, 251, 248));
             setPreferredSize(new Dimension(620, 320));
@@ -705,36 +1193,118 @@ public class GuiApp {
 
         private void setData(int[] data) {
             this.data = data;
-            repaint();
+            if (data != null && data.length > 0) {
+                minValue = data[0];
+                maxValue = data[0];
+                for (int value : data) {
+                    minValue = Math.min(minValue, value);
+                    maxValue = Math.max(maxValue, value);
+                }
+            }
+            invalidateCanvas();
+        }
+
+        /**
+         * data[index] が書き換えられた（値の範囲が広がった場合は全体を描き直す）
+         */
+        private void valueChanged(int index) {
+            int value = data[index];
+            if (value < minValue || value > maxValue) {
+                minValue = Math.min(minValue, value);
+                maxValue = Math.max(maxValue, value);
+                invalidateCanvas();
+            }
+            markDirty(index);
         }
 
         private void setHighlight(int indexA, int indexB, StepType type) {
+            int oldA = highlightA;
+            int oldB = highlightB;
             this.highlightA = indexA;
             this.highlightB = indexB;
             this.highlightType = type;
-            repaint();
+            markDirty(oldA);
+            markDirty(oldB);
+            markDirty(indexA);
+            markDirty(indexB);
         }
 
         private void setPivotIndex(int index) {
+            int oldPivot = pivotIndex;
             this.pivotIndex = index;
-            repaint();
+            markDirty(oldPivot);
+            markDirty(index);
         }
 
         private void clearHighlights() {
+            int oldA = highlightA;
+            int oldB = highlightB;
+            int oldPivot = pivotIndex;
             highlightA = -1;
             highlightB = -1;
             pivotIndex = -1;
             highlightType = StepType.COMPARE;
+            markDirty(oldA);
+            markDirty(oldB);
+            markDirty(oldPivot);
+            flush();
+        }
+
+        private void invalidateCanvas() {
+            canvasValid = false;
+            if (dirtyCount > 0) {
+                Arrays.fill(slotDirty, false);
+                dirtyCount = 0;
+            }
             repaint();
         }
 
+        /**
+         * index を含む列を次の flush で描き直す
+         */
+        private void markDirty(int index) {
+            if (!canvasValid || data == null || index < 0 || index >= data.length) {
+                return;
+            }
+            int slot = (int) (((long) (index + 1) * slotCount - 1) / data.length);
+            if (!slotDirty[slot]) {
+                slotDirty[slot] = true;
+                dirtySlots[dirtyCount++] = slot;
+            }
+        }
+
+        /**
+         * 記録した列をキャッシュに描き直し、それらを囲む範囲を repaint する
+         * 列が多いときは全体を描き直す。
+         */
+        private void flush() {
+            if (dirtyCount == 0) {
+                return;
+            }
+            if (dirtyCount > slotCount / 2) {
+                invalidateCanvas();
+                return;
+            }
+            int left = Integer.MAX_VALUE;
+            int right = Integer.MIN_VALUE;
+            for (int i = 0; i < dirtyCount; i++) {
+                int slot = dirtySlots[i];
+                slotDirty[slot] = false;
+                int x = drawSlot(slot);
+                left = Math.min(left, x);
+                right = Math.max(right, x + barWidth);
+            }
+            dirtyCount = 0;
+            repaint(left, PADDING + 1, right - left, plotHeight - 1);
+        }
+
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
-            Graphics2D g2 = (Graphics2D) g.create();
-            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
             if (data == null || data.length == 0) {
+                Graphics2D g2 = (Graphics2D) g.create();
+                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
                 g2.setColor(TEXT_COLOR);
                 g2.setFont(new Font("Serif", Font.PLAIN, 14));
                 String message = "Generate data to visualize sorting.";
@@ -745,49 +1315,86 @@ public class GuiApp {
                 return;
             }
 
-            int padding = 12;
-            int width = getWidth() - padding * 2;
-            int height = getHeight() - padding * 2;
-            if (width <= 0 || height <= 0) {
-                g2.dispose();
+            if (getWidth() - PADDING * 2 <= 0 || getHeight() - PADDING * 2 <= 1) {
                 return;
             }
-
-            int min = data[0];
-            int max = data[0];
-            for (int value : data) {
-                min = Math.min(min, value);
-                max = Math.max(max, value);
+            if (canvas == null || canvas.getWidth() != getWidth() || canvas.getHeight() != getHeight()) {
+                if (canvasGraphics != null) {
+                    canvasGraphics.dispose();
+                }
+                canvas = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
+                canvasGraphics = canvas.createGraphics();
+                canvasValid = false;
             }
+            if (!canvasValid) {
+                renderAll();
+                canvasValid = true;
+            }
+            g.drawImage(canvas, 0, 0, null);
+        }
 
-            boolean flat = min == max;
-            int gap = data.length <= 60 ? 2 : 1;
-            int barWidth = Math.max(1, (width - gap * (data.length - 1)) / data.length);
-            int totalWidth = barWidth * data.length + gap * (data.length - 1);
-            int startX = padding + Math.max(0, (width - totalWidth) / 2);
-
-            g2.setColor(FRAME_COLOR);
-            g2.drawRect(padding, padding, width, height);
-
-            for (int i = 0; i < data.length; i++) {
-                double ratio = flat ? 0.5 : (data[i] - min) / (double) (max - min);
-                int barHeight = Math.max(1, (int) Math.round(ratio * height));
-                int x = startX + i * (barWidth + gap);
-                int y = padding + (height - barHeight);
+        private void renderAll() {
+            int width = getWidth() - PADDING * 2;
+            int height = getHeight() - PADDING * 2;
+            int n = data.length;
+            gap = n <= 60 ? 2 : 1;
+            if ((long) n * (1 + gap) - gap <= width) {
+                slotCount = n;
+                barWidth = Math.max(1, (width - gap * (n - 1)) / n);
+            } else {
+                // 隙間をなくし、それでも収まらなければ 1 ピクセル列に複数の要素をまとめる
+                gap = 0;
+                slotCount = Math.min(n, width);
+                barWidth = width / slotCount;
+            }
+            int totalWidth = barWidth * slotCount + gap * (slotCount - 1);
+            startX = PADDING + Math.max(0, (width - totalWidth) / 2);
+            plotHeight = height;
+            if (slotDirty.length != slotCount) {
+                slotDirty = new boolean[slotCount];
+                dirtySlots = new int[slotCount];
+            } else {
+                Arrays.fill(slotDirty, false);
+            }
+            dirtyCount = 0;
+
+            canvasGraphics.setColor(getBackground());
+            canvasGraphics.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+            canvasGraphics.setColor(FRAME_COLOR);
+            canvasGraphics.drawRect(PADDING, PADDING, width, height);
+            for (int slot = 0; slot < slotCount; slot++) {
+                drawSlot(slot);
+            }
+        }
 
-                Color barColor = BASE_COLOR;
-                if (i == pivotIndex) {
-                    barColor = PIVOT_COLOR;
-                }
+        /**
+         * 列 slot を描き直す
+         * @return 列の左端の x 座標
+         */
+        private int drawSlot(int slot) {
+            int from = (int) ((long) slot * data.length / slotCount);
+            int to = (int) ((long) (slot + 1) * data.length / slotCount);
+            int value = data[from];
+            Color barColor = BASE_COLOR;
+            for (int i = from; i < to; i++) {
+                value = Math.max(value, data[i]);
                 if (i == highlightA || i == highlightB) {
-                    barColor = highlightType == StepType.SWAP ? SWAP_COLOR : COMPARE_COLOR;
+                    barColor = highlightType == StepType.COMPARE ? COMPARE_COLOR : SWAP_COLOR;
+                } else if (i == pivotIndex && barColor == BASE_COLOR) {
+                    barColor = PIVOT_COLOR;
                 }
-
-                g2.setColor(barColor);
-                g2.fillRect(x, y, barWidth, barHeight);
             }
 
-            g2.dispose();
+            // 枠線の内側（上下 1 ピクセルずつ除く）に描く
+            int innerHeight = plotHeight - 1;
+            double ratio = minValue == maxValue ? 0.5 : (value - minValue) / (double) (maxValue - minValue);
+            int barHeight = Math.max(1, (int) Math.round(ratio * innerHeight));
+            int x = startX + slot * (barWidth + gap);
+            canvasGraphics.setColor(getBackground());
+            canvasGraphics.fillRect(x, PADDING + 1, barWidth, innerHeight);
+            canvasGraphics.setColor(barColor);
+            canvasGraphics.fillRect(x, PADDING + plotHeight - barHeight, barWidth, barHeight);
+            return x;
         }
     }
 }
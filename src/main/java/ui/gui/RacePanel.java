@@ -0,0 +1,301 @@
+package ui.gui;
+
+import algorithm.AbstractSortAlgorithm;
+import algorithm.SortAlgorithm;
+import algorithm.SortEventSink;
+import test.TestEngine;
+
+import javax.swing.JPanel;
+import javax.swing.Timer;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 複数のアルゴリズムに同じ配列のコピーを同時に整列させ、並べて比較するパネル
+ * レーンごとにワーカースレッドを 1 つ使い、全員が揃ってから一斉に開始する。
+ * 描画は 1 つのタイマーがすべてのレーンをまとめて行う。ワーカーは通知を待たずに全速で進み、
+ * カウンターと同じタイミング（ただし 1 フレームに 1 回まで）で配列のスナップショットを公開する。
+ * タイマーは公開されたスナップショットだけを描くので、作業中の配列を読むことはない。
+ * 通知を出さないアルゴリズムは、終わるまで開始時の配列のまま表示される。
+ */
+public class RacePanel extends JPanel {
+    private static final int FRAME_MS = 33;
+    /** カウンターを表示用に公開する間隔（イベント数） */
+    private static final int PUBLISH_INTERVAL = 1024;
+    /** 配列のスナップショットを取り直す最短の間隔 */
+    private static final long SNAPSHOT_INTERVAL_NANOS = FRAME_MS * 1_000_000L;
+    private static final int PADDING = 12;
+    private static final int LABEL_HEIGHT = 20;
+    private static final Color BAR_COLOR = new Color(78, 154, 131);
+    private static final Color DONE_COLOR = new Color(90, 120, 200);
+    private static final Color FAILED_COLOR = new Color(203, 78, 74);
+    private static final Color FRAME_COLOR = new Color(224, 220, 214);
+    private static final Color TEXT_COLOR = new Color(60, 60, 60);
+    private static final Font LABEL_FONT = new Font("Monospaced", Font.PLAIN, 12);
+
+    private final List<Lane> lanes = new ArrayList<>();
+    private final Timer renderTimer = new Timer(FRAME_MS, event -> renderFrame());
+    private int minValue;
+    private int maxValue;
+
+    public RacePanel() {
+        setBackground(new Color(253, 251, 248));
+        setPreferredSize(new Dimension(760, 560));
+        renderTimer.setCoalesce(true);
+    }
+
+    /**
+     * レースを開始する（前のレースは中断する）
+     * @param data 全員が整列する元の配列（変更しない）
+     * @param algorithms 参加するアルゴリズム（レーンごとに別のインスタンスを渡すこと）
+     */
+    public void start(int[] data, SortAlgorithm[] algorithms) {
+        if (data == null || algorithms == null || algorithms.length == 0) {
+            throw new IllegalArgumentException("data and at least one algorithm are required");
+        }
+        stop();
+        lanes.clear();
+        minValue = 0;
+        maxValue = 0;
+        if (data.length > 0) {
+            minValue = data[0];
+            maxValue = data[0];
+            for (int value : data) {
+                minValue = Math.min(minValue, value);
+                maxValue = Math.max(maxValue, value);
+            }
+        }
+
+        CountDownLatch ready = new CountDownLatch(algorithms.length);
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicInteger finishOrder = new AtomicInteger();
+        for (SortAlgorithm algorithm : algorithms) {
+            Lane lane = new Lane(algorithm, data.clone(), finishOrder);
+            lanes.add(lane);
+            Thread worker = new Thread(() -> lane.run(ready, go), "race-" + algorithm.getName());
+            worker.setDaemon(true);
+            worker.start();
+        }
+        try {
+            ready.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        go.countDown();
+        renderTimer.start();
+    }
+
+    /**
+     * 走っているレーンを中断する（通知を出さないアルゴリズムは最後まで実行される）
+     */
+    public void stop() {
+        for (Lane lane : lanes) {
+            lane.cancelled = true;
+        }
+        renderTimer.stop();
+    }
+
+    private void renderFrame() {
+        boolean allDone = true;
+        for (Lane lane : lanes) {
+            allDone &= lane.done;
+        }
+        repaint();
+        if (allDone) {
+            renderTimer.stop();
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if (lanes.isEmpty()) {
+            return;
+        }
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2.setFont(LABEL_FONT);
+
+        int laneHeight = (getHeight() - PADDING) / lanes.size();
+        int width = getWidth() - PADDING * 2;
+        for (int i = 0; i < lanes.size(); i++) {
+            int top = PADDING + i * laneHeight;
+            drawLane(g2, lanes.get(i), PADDING, top, width, laneHeight - PADDING);
+        }
+        g2.dispose();
+    }
+
+    private void drawLane(Graphics2D g2, Lane lane, int left, int top, int width, int height) {
+        g2.setColor(TEXT_COLOR);
+        g2.drawString(lane.describe(), left, top + LABEL_HEIGHT - 6);
+
+        int plotTop = top + LABEL_HEIGHT;
+        int plotHeight = height - LABEL_HEIGHT;
+        if (width <= 0 || plotHeight <= 1) {
+            return;
+        }
+        g2.setColor(FRAME_COLOR);
+        g2.drawRect(left, plotTop, width, plotHeight);
+
+        int[] values = lane.snapshot;
+        int n = values.length;
+        if (n == 0) {
+            return;
+        }
+        g2.setColor(!lane.done ? BAR_COLOR : lane.failure == null && lane.sortedOk ? DONE_COLOR : FAILED_COLOR);
+        // 1 ピクセル列に収まらない要素はまとめ、その中で最大の値を描く
+        int columns = Math.min(n, width - 1);
+        int innerHeight = plotHeight - 1;
+        for (int column = 0; column < columns; column++) {
+            int from = (int) ((long) column * n / columns);
+            int to = (int) ((long) (column + 1) * n / columns);
+            int value = values[from];
+            for (int i = from + 1; i < to; i++) {
+                value = Math.max(value, values[i]);
+            }
+            double ratio = minValue == maxValue ? 0.5 : (value - minValue) / (double) (maxValue - minValue);
+            int barHeight = Math.max(1, (int) Math.round(ratio * innerHeight));
+            int x = left + 1 + (int) ((long) column * (width - 1) / columns);
+            int nextX = left + 1 + (int) ((long) (column + 1) * (width - 1) / columns);
+            int barWidth = Math.max(1, nextX - x - (columns <= 60 ? 2 : 0));
+            g2.fillRect(x, plotTop + plotHeight - barHeight, barWidth, barHeight);
+        }
+    }
+
+    /**
+     * 1 つのアルゴリズムのレーン。カウンターと配列はワーカーだけが更新し、一定間隔で volatile に公開する
+     */
+    private static final class Lane {
+        private final SortAlgorithm algorithm;
+        private final int[] array;
+        private final AtomicInteger finishOrder;
+        // 描画用の配列のコピー。公開後は書き換えず、次のコピーで差し替える
+        private volatile int[] snapshot;
+        private volatile boolean cancelled;
+        private volatile long comparisons;
+        private volatile long swaps;
+        private volatile long writes;
+        private volatile long elapsedNanos = -1;
+        private volatile int place;
+        private volatile boolean done;
+        private volatile boolean sortedOk;
+        private volatile Throwable failure;
+
+        private Lane(SortAlgorithm algorithm, int[] array, AtomicInteger finishOrder) {
+            this.algorithm = algorithm;
+            this.array = array;
+            this.finishOrder = finishOrder;
+            this.snapshot = array.clone();
+        }
+
+        private void run(CountDownLatch ready, CountDownLatch go) {
+            Counter counter = new Counter();
+            AbstractSortAlgorithm notifying = algorithm instanceof AbstractSortAlgorithm
+                ? (AbstractSortAlgorithm) algorithm
+                : null;
+            if (notifying != null) {
+                notifying.setEventSink(counter);
+            }
+            try {
+                ready.countDown();
+                go.await();
+                long start = System.nanoTime();
+                algorithm.sort(array);
+                elapsedNanos = System.nanoTime() - start;
+                place = finishOrder.incrementAndGet();
+                sortedOk = TestEngine.isSorted(array);
+            } catch (CancellationException e) {
+                failure = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = e;
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                if (notifying != null) {
+                    notifying.setEventSink(null);
+                }
+                counter.publish(true);
+                done = true;
+            }
+        }
+
+        private String describe() {
+            String state;
+            if (!done) {
+                state = "running";
+            } else if (failure instanceof CancellationException) {
+                state = "stopped";
+            } else if (failure != null) {
+                state = "failed: " + failure.getMessage();
+            } else {
+                state = String.format("#%d in %.3f ms%s", place, elapsedNanos / 1e6, sortedOk ? "" : " (NOT sorted)");
+            }
+            return String.format("%-24s cmp %,14d  swp %,12d  wr %,12d  %s",
+                algorithm.getName(), comparisons, swaps, writes, state);
+        }
+
+        /**
+         * ワーカースレッドで数え、PUBLISH_INTERVAL ごとに表示用のフィールドへ書き出す
+         * 配列のスナップショットは前回から 1 フレーム以上経っているときだけ取り直す。
+         */
+        private final class Counter implements SortEventSink {
+            private long localComparisons;
+            private long localSwaps;
+            private long localWrites;
+            private int sincePublish;
+            private long lastSnapshotNanos = System.nanoTime();
+
+            @Override
+            public void onCompare(int i, int j) {
+                localComparisons++;
+                tick();
+            }
+
+            @Override
+            public void onSwap(int i, int j) {
+                localSwaps++;
+                tick();
+            }
+
+            @Override
+            public void onWrite(int index, int value) {
+                localWrites++;
+                tick();
+            }
+
+            private void tick() {
+                if (++sincePublish == PUBLISH_INTERVAL) {
+                    sincePublish = 0;
+                    publish(false);
+                    if (cancelled) {
+                        throw new CancellationException("race stopped");
+                    }
+                }
+            }
+
+            /**
+             * @param finalState 終了時の公開（間隔によらずスナップショットを取る）
+             */
+            private void publish(boolean finalState) {
+                comparisons = localComparisons;
+                swaps = localSwaps;
+                writes = localWrites;
+                long now = System.nanoTime();
+                if (finalState || now - lastSnapshotNanos >= SNAPSHOT_INTERVAL_NANOS) {
+                    snapshot = array.clone();
+                    lastSnapshotNanos = now;
+                }
+            }
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package ui.gui;
 
 import algorithm.SortAlgorithm;
+import algorithm.SortEventSink;
 
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Dimension;
@@ -10,34 +13,65 @@ import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
+import java.awt.Stroke;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * ソートアルゴリズムの実行過程を可視化するパネル
+ * ソートスレッドは自分用のコピーを整列し、比較・交換・書き込みをロックフリーのリングバッファに積むだけで待たない。
+ * EDT はフレームごとにリングから取り出したイベントを表示用の配列に適用して描画するので、
+ * 描画中の配列をソートスレッドが書き換えることはない。
+ * リングは実行ごとに作り直し、データの差し替えや再実行の前に古い実行を中断するので、1 つのリングに書くのは常に 1 スレッドだけ。
  */
 public class SortVisualizer extends JPanel {
+    private static final int FRAME_MS = 16;
+    private static final int RING_CAPACITY = 1 << 16;
+
     private int[] array;
     private int[] originalArray;
-    private volatile int currentIndex = -1;
-    private volatile int compareIndex = -1;
+    private int maxValue = 1;
+    private int currentIndex = -1;
+    private int compareIndex = -1;
     private volatile boolean isSorting = false;
-    private volatile boolean isSorted = false;
+    private boolean isSorted = false;
     private SortAlgorithm sortAlgorithm;
     private volatile int animationDelay = 5; // ミリ秒
-    
+
+    private final long[] frameEvents = new long[RING_CAPACITY];
+    private final Timer frameTimer = new Timer(FRAME_MS, event -> drainEvents());
+    // 実行中のソートのリングとスレッド（EDT だけが差し替える）
+    private EventRing events;
+    private Thread sortThread;
+    private SortAlgorithm threadAlgorithm;
+    // 前のスレッドが終わりしだい開始する実行が待っているか
+    private boolean pendingStart;
+    private double eventCredit;
+
     private static final Color UNSORTED_COLOR = new Color(100, 150, 255);
     private static final Color CURRENT_COLOR = new Color(255, 100, 100);
     private static final Color COMPARE_COLOR = new Color(255, 200, 0);
     private static final Color SORTED_COLOR = new Color(100, 255, 100);
     private static final Color BACKGROUND_COLOR = new Color(240, 240, 250);
-    
-    private long startTime = 0;
-    private long endTime = 0;
-    
+    private static final Color BORDER_COLOR = new Color(80, 80, 80);
+    private static final Color TEXT_COLOR = new Color(50, 50, 50);
+    private static final Color EMPTY_TEXT_COLOR = new Color(150, 150, 150);
+    private static final Stroke BORDER_STROKE = new BasicStroke(0.5f);
+    private static final Font INFO_FONT = new Font("Monospaced", Font.PLAIN, 14);
+    private static final Font EMPTY_FONT = new Font("Serif", Font.ITALIC, 16);
+
+    private volatile long startTime = 0;
+    private volatile long endTime = 0;
+    private String arrayInfo = "";
+    private String timeInfo = "";
+
     public SortVisualizer() {
         setPreferredSize(new Dimension(800, 400));
         setBackground(BACKGROUND_COLOR);
+        frameTimer.setCoalesce(true);
         addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
@@ -45,11 +79,12 @@ public class SortVisualizer extends JPanel {
             }
         });
     }
-    
+
     /**
      * ビジュアライザーにデータを設定
      */
     public void setData(int[] data, SortAlgorithm algorithm) {
+        cancelSorting();
         this.array = data.clone();
         this.originalArray = data.clone();
         this.sortAlgorithm = algorithm;
@@ -57,9 +92,12 @@ public class SortVisualizer extends JPanel {
         this.compareIndex = -1;
         this.isSorted = false;
         this.isSorting = false;
+        this.maxValue = computeMaxValue(array);
+        this.arrayInfo = "配列サイズ: " + array.length;
+        this.timeInfo = "";
         repaint();
     }
-    
+
     /**
      * ソート処理を開始（別スレッドで実行）
      */
@@ -67,134 +105,246 @@ public class SortVisualizer extends JPanel {
         if (array == null || isSorting) {
             return;
         }
-        
+        cancelSorting();
+        if (sortThread != null && threadAlgorithm == sortAlgorithm) {
+            // 中断した前のスレッドが同じインスタンスを使い終えてから始める（EDT は待たせない）
+            pendingStart = true;
+            isSorting = true;
+            repaint();
+            return;
+        }
+        launchRun();
+    }
+
+    /**
+     * 新しいリングとスレッドで表示中の配列の整列を始める
+     */
+    private void launchRun() {
+        EventRing ring = new EventRing(RING_CAPACITY);
+        events = ring;
         isSorting = true;
         isSorted = false;
+        eventCredit = 0;
+        timeInfo = "";
         startTime = System.currentTimeMillis();
-        
-        Thread sortThread = new Thread(() -> {
+        endTime = 0;
+        int[] workArray = array.clone();
+        SortAlgorithm algorithm = sortAlgorithm;
+
+        // 比較・交換・書き込みはこの実行のリングにだけ積む
+        SortEventSink sink = new SortEventSink() {
+            @Override
+            public void onCompare(int i, int j) {
+                ring.put(EventRing.encode(EventRing.COMPARE, i, j));
+            }
+
+            @Override
+            public void onSwap(int i, int j) {
+                ring.put(EventRing.encode(EventRing.SWAP, i, j));
+            }
+
+            @Override
+            public void onWrite(int index, int value) {
+                ring.put(EventRing.encode(EventRing.WRITE, index, value));
+            }
+        };
+
+        sortThread = new Thread(() -> {
             try {
                 // アルゴリズムにビジュアライザーコールバックを登録
-                if (sortAlgorithm instanceof algorithm.AbstractSortAlgorithm) {
-                    algorithm.AbstractSortAlgorithm abstractAlgo = 
-                        (algorithm.AbstractSortAlgorithm) sortAlgorithm;
-                    abstractAlgo.setVisualizerCallback(this::updateArrayState);
+                if (algorithm instanceof algorithm.AbstractSortAlgorithm) {
+                    ((algorithm.AbstractSortAlgorithm) algorithm).setEventSink(sink);
                 }
-                
+
                 // ソート実行
-                sortAlgorithm.sort(array);
-                
-                endTime = System.currentTimeMillis();
-                isSorted = true;
-                currentIndex = -1;
-                compareIndex = -1;
-                repaint();
+                algorithm.sort(workArray);
+            } catch (CancellationException e) {
+                // 新しいデータか次の実行に置き換えられた
             } catch (Exception e) {
                 e.printStackTrace();
             } finally {
-                isSorting = false;
+                // 共有インスタンスを通知なしの状態に戻す（後の実行が登録したものは残す）
+                if (algorithm instanceof algorithm.AbstractSortAlgorithm) {
+                    algorithm.AbstractSortAlgorithm abstractAlgo = (algorithm.AbstractSortAlgorithm) algorithm;
+                    if (abstractAlgo.getEventSink() == sink) {
+                        abstractAlgo.setEventSink(null);
+                    }
+                }
+                ring.finish();
+                Thread finished = Thread.currentThread();
+                SwingUtilities.invokeLater(() -> threadFinished(finished));
             }
         });
-        
+
+        threadAlgorithm = algorithm;
         sortThread.setDaemon(true);
+        frameTimer.start();
         sortThread.start();
     }
-    
+
     /**
-     * ソート中に配列の状態を更新（アルゴリズムから呼び出される）
+     * 実行中のソートを中断する。ソートスレッドは次の通知で CancellationException を受けて終わる
      */
-    protected void updateArrayState(int index1, int index2) {
-        this.currentIndex = index1;
-        this.compareIndex = index2;
-        repaint();
-        
-        // アニメーション用の遅延
-        try {
-            Thread.sleep(animationDelay);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+    private void cancelSorting() {
+        frameTimer.stop();
+        if (events != null) {
+            events.cancel();
+            events = null;
         }
+        pendingStart = false;
+        isSorting = false;
     }
-    
+
+    /**
+     * ソートスレッドの終了を EDT で受け取り、待っていた実行があれば始める
+     * 通知を出さないアルゴリズムは中断できないので、同じインスタンスでの次の実行はここまで遅らせる。
+     */
+    private void threadFinished(Thread finished) {
+        if (finished != sortThread) {
+            return;
+        }
+        sortThread = null;
+        threadAlgorithm = null;
+        if (pendingStart) {
+            pendingStart = false;
+            launchRun();
+        }
+    }
+
     /**
      * アニメーション速度を設定（ミリ秒単位）
-     * @param delayMs 各ステップの遅延時間
+     * @param delayMs 1 イベントを表示する間隔（0 ならフレームごとに溜まったイベントをすべて適用する）
      */
     public void setAnimationDelay(int delayMs) {
         this.animationDelay = Math.max(0, delayMs);
     }
-    
+
     /**
      * 現在のアニメーション速度を取得
      */
     public int getAnimationDelay() {
         return animationDelay;
     }
-    
+
     /**
-     * 要素の交換を反映（アルゴリズムから呼び出される）
+     * フレームごとに EDT でリングのイベントを表示用の配列に適用する
      */
-    protected void swap(int i, int j) {
-        int temp = array[i];
-        array[i] = array[j];
-        array[j] = temp;
-        updateArrayState(i, j);
+    private void drainEvents() {
+        EventRing ring = events;
+        if (ring == null) {
+            // 止めたタイマーのイベントが 1 つ残っていた
+            return;
+        }
+        // 終了フラグを先に読むので、それ以前に積まれたイベントはこのフレームで必ず見える
+        boolean done = ring.isFinished();
+        int delay = animationDelay;
+        int budget;
+        if (delay == 0) {
+            budget = frameEvents.length;
+        } else {
+            eventCredit += (double) FRAME_MS / delay;
+            budget = (int) Math.min(eventCredit, frameEvents.length);
+        }
+
+        int count = ring.drain(frameEvents, budget);
+        eventCredit = count < budget ? 0 : eventCredit - count;
+        for (int k = 0; k < count; k++) {
+            long event = frameEvents[k];
+            int first = EventRing.first(event);
+            int second = EventRing.second(event);
+            switch (EventRing.type(event)) {
+                case EventRing.SWAP:
+                    int temp = array[first];
+                    array[first] = array[second];
+                    array[second] = temp;
+                    currentIndex = first;
+                    compareIndex = second;
+                    break;
+                case EventRing.WRITE:
+                    array[first] = second;
+                    maxValue = Math.max(maxValue, second);
+                    currentIndex = first;
+                    compareIndex = -1;
+                    break;
+                default:
+                    currentIndex = first;
+                    compareIndex = second;
+                    break;
+            }
+        }
+
+        if (done && ring.isEmpty()) {
+            frameTimer.stop();
+            endTime = ring.getFinishedAt();
+            isSorting = false;
+            isSorted = true;
+            currentIndex = -1;
+            compareIndex = -1;
+            timeInfo = endTime > startTime ? "実行時間: " + (endTime - startTime) + "ms" : "";
+        }
+        if (count > 0 || !isSorting) {
+            repaint();
+        }
     }
-    
+
     /**
      * ビジュアライザーをリセット
      */
     public void resetVisualization() {
         if (!isSorting) {
             array = originalArray.clone();
+            maxValue = computeMaxValue(array);
             currentIndex = -1;
             compareIndex = -1;
             isSorted = false;
             startTime = 0;
             endTime = 0;
+            timeInfo = "";
             repaint();
         }
     }
-    
+
     /**
      * 現在ソート中かどうかを判定
      */
-    public synchronized boolean isSorting() {
+    public boolean isSorting() {
         return isSorting;
     }
-    
+
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        
+
         if (array == null || array.length == 0) {
             drawEmptyMessage(g);
             return;
         }
-        
+
         Graphics2D g2d = (Graphics2D) g;
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        
+
         int width = getWidth();
         int height = getHeight();
         int arrayLength = array.length;
-        
-        // 各要素の幅と最大値を計算
+
+        // 各要素の幅を計算（最大値は setData と書き込みで更新済み）
         double barWidth = (double) (width - 40) / arrayLength;
-        int maxValue = getMaxValue();
-        
+
         // 情報パネルを描画
-        drawInfoPanel(g2d, width, height);
-        
+        drawInfoPanel(g2d);
+
         // 配列要素をバー図で描画
         int startX = 20;
         int startY = 60;
         int drawHeight = height - 100;
-        
+        int barPixels = (int) Math.max(1, barWidth - 1);
+        g2d.setStroke(BORDER_STROKE);
+
         for (int i = 0; i < arrayLength; i++) {
-            double x = startX + i * barWidth;
-            double barHeight = (double) array[i] / maxValue * drawHeight;
-            
+            int x = (int) (startX + i * barWidth);
+            int barHeight = (int) ((double) array[i] / maxValue * drawHeight);
+            int y = startY + drawHeight - barHeight;
+
             // 色を決定
             Color barColor = UNSORTED_COLOR;
             if (isSorted) {
@@ -204,65 +354,172 @@ public class SortVisualizer extends JPanel {
             } else if (i == compareIndex) {
                 barColor = COMPARE_COLOR;
             }
-            
+
             // バーを描画
             g2d.setColor(barColor);
-            g2d.fillRect((int) x, (int) (startY + drawHeight - barHeight), 
-                        (int) Math.max(1, barWidth - 1), (int) barHeight);
-            
+            g2d.fillRect(x, y, barPixels, barHeight);
+
             // 枠線を描画
-            g2d.setColor(new Color(80, 80, 80));
-            g2d.setStroke(new BasicStroke(0.5f));
-            g2d.drawRect((int) x, (int) (startY + drawHeight - barHeight), 
-                        (int) Math.max(1, barWidth - 1), (int) barHeight);
+            g2d.setColor(BORDER_COLOR);
+            g2d.drawRect(x, y, barPixels, barHeight);
         }
     }
-    
+
     /**
      * 情報パネルを描画
      */
-    private void drawInfoPanel(Graphics2D g2d, int width, int height) {
-        g2d.setColor(new Color(50, 50, 50));
-        g2d.setFont(new Font("Monospaced", Font.PLAIN, 14));
-        
+    private void drawInfoPanel(Graphics2D g2d) {
+        g2d.setColor(TEXT_COLOR);
+        g2d.setFont(INFO_FONT);
+
         String statusText = isSorting ? "ソート中..." : (isSorted ? "完了" : "準備完了");
-        String arrayInfo = "配列サイズ: " + array.length;
-        String timeInfo = "";
-        
-        if (isSorted && endTime > startTime) {
-            long elapsedTime = endTime - startTime;
-            timeInfo = "実行時間: " + elapsedTime + "ms";
-        }
-        
         g2d.drawString(statusText, 20, 30);
         g2d.drawString(arrayInfo, 200, 30);
         if (!timeInfo.isEmpty()) {
             g2d.drawString(timeInfo, 400, 30);
         }
     }
-    
+
     /**
      * 空の状態のメッセージを描画
      */
     private void drawEmptyMessage(Graphics g) {
         Graphics2D g2d = (Graphics2D) g;
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setFont(new Font("Serif", Font.ITALIC, 16));
-        g2d.setColor(new Color(150, 150, 150));
-        g2d.drawString("データを生成して、ソートボタンをクリックしてください", 
+        g2d.setFont(EMPTY_FONT);
+        g2d.setColor(EMPTY_TEXT_COLOR);
+        g2d.drawString("データを生成して、ソートボタンをクリックしてください",
                        getWidth() / 2 - 150, getHeight() / 2);
     }
-    
+
     /**
      * 配列の最大値を取得
      */
-    private int getMaxValue() {
+    private static int computeMaxValue(int[] values) {
         int max = Integer.MIN_VALUE;
-        for (int val : array) {
+        for (int val : values) {
             if (val > max) {
                 max = val;
             }
         }
         return Math.max(max, 1);
     }
+
+    /**
+     * ソートスレッド 1 つが書き、EDT 1 つが読むロックフリーのリングバッファ
+     * 書き込み位置と読み出し位置はそれぞれ片方のスレッドだけが進め、release/acquire で要素の受け渡しを保証する。
+     * イベントは long 1 つ（上位 4 ビットに種類、続く 28 ビットに添字、下位 32 ビットに 2 つ目の添字か値）。
+     * 満杯のときだけソートスレッドは少しずつ待つ。中断されたリングへの put は CancellationException を投げる。
+     */
+    private static final class EventRing {
+        static final int COMPARE = 0;
+        static final int SWAP = 1;
+        static final int WRITE = 2;
+        private static final int TYPE_SHIFT = 60;
+        private static final int FIRST_SHIFT = 32;
+        private static final long FIRST_MASK = (1L << (TYPE_SHIFT - FIRST_SHIFT)) - 1;
+        private static final int SPINS_BEFORE_PARK = 100;
+        private static final long PARK_NANOS = 100_000;
+
+        private final long[] buffer;
+        private final int mask;
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLong tail = new AtomicLong();
+        // ソートスレッドだけが使う head の控え（毎回 head を読まないため）
+        private long cachedHead;
+        private volatile boolean cancelled;
+        private volatile boolean finished;
+        private volatile long finishedAt;
+
+        EventRing(int capacity) {
+            if (Integer.bitCount(capacity) != 1) {
+                throw new IllegalArgumentException("capacity must be a power of two");
+            }
+            this.buffer = new long[capacity];
+            this.mask = capacity - 1;
+        }
+
+        /**
+         * ソートスレッドから呼ぶ。満杯なら空くまで待つ
+         */
+        void put(long event) {
+            if (cancelled) {
+                throw new CancellationException("sort replaced");
+            }
+            long t = tail.get();
+            int spins = 0;
+            while (t - cachedHead == buffer.length) {
+                if (cancelled) {
+                    throw new CancellationException("sort replaced");
+                }
+                cachedHead = head.getAcquire();
+                if (t - cachedHead < buffer.length) {
+                    break;
+                }
+                if (++spins < SPINS_BEFORE_PARK) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+            }
+            buffer[(int) t & mask] = event;
+            tail.setRelease(t + 1);
+        }
+
+        /**
+         * EDT から呼ぶ。最大 max 個を dst に取り出す（待たない）
+         */
+        int drain(long[] dst, int max) {
+            long h = head.get();
+            int count = (int) Math.min(max, tail.getAcquire() - h);
+            for (int k = 0; k < count; k++) {
+                dst[k] = buffer[(int) (h + k) & mask];
+            }
+            head.setRelease(h + count);
+            return count;
+        }
+
+        boolean isEmpty() {
+            return head.get() == tail.getAcquire();
+        }
+
+        /**
+         * EDT から呼ぶ。以後の put は CancellationException になる（満杯で待っている場合も抜ける）
+         */
+        void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * ソートスレッドの最後に呼ぶ。終了時刻を記録する
+         */
+        void finish() {
+            finishedAt = System.currentTimeMillis();
+            finished = true;
+        }
+
+        boolean isFinished() {
+            return finished;
+        }
+
+        long getFinishedAt() {
+            return finishedAt;
+        }
+
+        static long encode(int type, int first, int second) {
+            return (long) type << TYPE_SHIFT | (long) (first + 1) << FIRST_SHIFT | (second & 0xffffffffL);
+        }
+
+        static int type(long event) {
+            return (int) (event >>> TYPE_SHIFT);
+        }
+
+        static int first(long event) {
+            return (int) ((event >>> FIRST_SHIFT) & FIRST_MASK) - 1;
+        }
+
+        static int second(long event) {
+            return (int) event;
+        }
+    }
 }